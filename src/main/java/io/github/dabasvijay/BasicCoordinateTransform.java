@@ -17,6 +17,11 @@ package io.github.dabasvijay;
 
 import io.github.dabasvijay.datum.Datum;
 import io.github.dabasvijay.datum.GeocentricConverter;
+import io.github.dabasvijay.proj.Projection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Represents the operation of transforming
@@ -43,12 +48,20 @@ import io.github.dabasvijay.datum.GeocentricConverter;
  * <p>
  * Information about the transformation procedure is pre-computed
  * and cached in this object for efficient computation.
+ * The transformation is planned as a fixed list of steps when it is created.
+ * Steps which have no effect (such as an ENU axis order or a Greenwich prime meridian)
+ * are left out, and adjacent axis and meridian adjustments are merged into a single step.
  *
  * @author Martin Davis
  * @see CoordinateTransformFactory
  */
 public class BasicCoordinateTransform implements CoordinateTransform {
 
+    /**
+     * The number of points of a 2D batch transformed at a time when heights are needed
+     */
+    private static final int HEIGHT_BLOCK = 4096;
+
     private final CoordinateReferenceSystem srcCRS;
     private final CoordinateReferenceSystem tgtCRS;
 
@@ -60,6 +73,9 @@ public class BasicCoordinateTransform implements CoordinateTransform {
     private GeocentricConverter srcGeoConv;
     private GeocentricConverter tgtGeoConv;
 
+    // the planned steps of the transformation, in order
+    private final TransformStep[] steps;
+
     /**
      * Creates a transformation from a source {@link CoordinateReferenceSystem}
      * to a target one.
@@ -118,7 +134,102 @@ public class BasicCoordinateTransform implements CoordinateTransform {
 
         }
 
+        // if the shifts to and from WGS84 cancel out and the ellipsoids match
+        // there's nothing to do in geocentric coordinates
+        if (geocentric && srcGeoConv.isEqual(tgtGeoConv)
+                && TransformStep.Helmert.toWgs84(srcCRS.getDatum())
+                        .then(TransformStep.Helmert.fromWgs84(tgtCRS.getDatum())).isIdentity()) {
+            geocentric = false;
+            srcGeoConv = null;
+            tgtGeoConv = null;
+        }
+
         transformViaGeocentric = geocentric;
+
+        steps = planSteps();
+    }
+
+    // The steps correspond to the stages of pj_transform in proj.4
+    private TransformStep[] planSteps() {
+        Projection srcProj = srcCRS.getProjection();
+        Projection tgtProj = tgtCRS.getProjection();
+        List<TransformStep> plan = new ArrayList<TransformStep>();
+
+        if (srcProj != null) {
+            TransformStep.append(plan, TransformStep.Affine.toENU(srcProj.getAxisOrder()));
+        }
+        if (doInverseProjection) {
+            // inverse project to geographic
+            TransformStep.append(plan, new TransformStep.InverseProjection(srcProj));
+        }
+        if (srcProj != null) {
+            TransformStep.append(plan, TransformStep.Affine.offsetX(srcProj.getPrimeMeridian().getOffsetFromGreenwich()));
+        }
+
+        // fixes bug where computed Z value sticks around
+        TransformStep.append(plan, TransformStep.Affine.clearZ());
+
+        if (doDatumTransform) {
+            planDatumTransform(plan);
+        }
+
+        if (tgtProj != null) {
+            TransformStep.append(plan, TransformStep.Affine.offsetX(-tgtProj.getPrimeMeridian().getOffsetFromGreenwich()));
+        }
+        if (doForwardProjection) {
+            // project from geographic to planar
+            TransformStep.append(plan, new TransformStep.ForwardProjection(tgtProj));
+        }
+        if (tgtProj != null) {
+            TransformStep.append(plan, TransformStep.Affine.fromENU(tgtProj.getAxisOrder()));
+        }
+
+        return plan.toArray(new TransformStep[plan.size()]);
+    }
+
+    /**
+     * Plans the steps converting long/lat/z coordinates in radians
+     * from the source datum to the target datum.
+     */
+    private void planDatumTransform(List<TransformStep> plan) {
+        Datum srcDatum = srcCRS.getDatum();
+        Datum tgtDatum = tgtCRS.getDatum();
+
+        /* -------------------------------------------------------------------- */
+        /*      Short cut if the datums are identical.                          */
+        /* -------------------------------------------------------------------- */
+        if (srcDatum.isEqual(tgtDatum)
+                || srcDatum.getTransformType() == Datum.TYPE_UNKNOWN
+                || tgtDatum.getTransformType() == Datum.TYPE_UNKNOWN)
+            return;
+
+        /* -------------------------------------------------------------------- */
+        /*	If this datum requires grid shifts, then apply it to geodetic    */
+        /*      coordinates.                                                    */
+        /* -------------------------------------------------------------------- */
+        if (srcDatum.getTransformType() == Datum.TYPE_GRIDSHIFT) {
+            TransformStep.append(plan, new TransformStep.GridShift(srcDatum, false));
+        }
+
+        /* ==================================================================== */
+        /*      Do we need to go through geocentric coordinates?                */
+        /* ==================================================================== */
+        if (transformViaGeocentric) {
+            TransformStep.append(plan, new TransformStep.GeodeticToGeocentric(srcGeoConv));
+
+            // the shifts to and from WGS84 are merged into a single step
+            TransformStep.append(plan, TransformStep.Helmert.toWgs84(srcDatum));
+            TransformStep.append(plan, TransformStep.Helmert.fromWgs84(tgtDatum));
+
+            TransformStep.append(plan, new TransformStep.GeocentricToGeodetic(tgtGeoConv));
+        }
+
+        /* -------------------------------------------------------------------- */
+        /*      Apply grid shift to destination if required.                    */
+        /* -------------------------------------------------------------------- */
+        if (tgtDatum.getTransformType() == Datum.TYPE_GRIDSHIFT) {
+            TransformStep.append(plan, new TransformStep.GridShift(tgtDatum, true));
+        }
     }
 
     @Override
@@ -146,90 +257,207 @@ public class BasicCoordinateTransform implements CoordinateTransform {
 	public ProjCoordinate transform(ProjCoordinate src, ProjCoordinate tgt)
             throws Proj4jException {
     	tgt.setValue(src);
-        srcCRS.getProjection().getAxisOrder().toENU(tgt);
 
         // NOTE: this method may be called many times, so needs to be as efficient as possible
-        if (doInverseProjection) {
-            // inverse project to geographic
-            srcCRS.getProjection().inverseProjectRadians(tgt, tgt);
+        for (TransformStep step : steps) {
+            step.transform(tgt);
         }
 
-        srcCRS.getProjection().getPrimeMeridian().toGreenwich(tgt);
-
-        // fixes bug where computed Z value sticks around
-        tgt.clearZ();
+        return tgt;
+    }
 
-        if (doDatumTransform) {
-            datumTransform(tgt);
+    /**
+     * Transforms a coordinate from the source {@link CoordinateReferenceSystem}
+     * to the target one, using the buffers of a context.
+     * A failure is recorded in the context before its exception is thrown.
+     *
+     * @param src     the input coordinate to be transformed
+     * @param tgt     the transformed coordinate
+     * @param context the context of the calling thread
+     * @return the target coordinate which was passed in
+     * @throws Proj4jException if a computation error is encountered
+     */
+    public ProjCoordinate transform(ProjCoordinate src, ProjCoordinate tgt, TransformContext context)
+            throws Proj4jException {
+        tgt.setValue(src);
+        context.countPoints(1);
+        try {
+            for (TransformStep step : steps) {
+                step.transform(tgt, context);
+            }
+        } catch (RuntimeException e) {
+            context.recordFailure(TransformStatus.of(e), e);
+            throw e;
         }
+        return tgt;
+    }
 
-        tgtCRS.getProjection().getPrimeMeridian().fromGreenwich(tgt);
+    /**
+     * Transforms a batch of coordinates from the source {@link CoordinateReferenceSystem}
+     * to the target one, in place.
+     * <p>
+     * Each step of the transformation is applied to the whole batch
+     * before moving on to the next one.
+     * If <tt>zs</tt> is <tt>null</tt> the points are treated as 2D,
+     * and any height computed by a datum transformation is discarded.
+     *
+     * @param xs  the x ordinates to transform
+     * @param ys  the y ordinates to transform
+     * @param zs  the z ordinates to transform, or <tt>null</tt> if the points have no Z value
+     * @param off the index of the first point to transform
+     * @param len the number of points to transform
+     * @throws Proj4jException if a computation error is encountered
+     */
+    @Override
+    public void transform(double[] xs, double[] ys, double[] zs, int off, int len)
+            throws Proj4jException {
+        transform(xs, ys, zs, off, len, new TransformContext());
+    }
 
-        if (doForwardProjection) {
-            // project from geographic to planar
-            tgtCRS.getProjection().projectRadians(tgt, tgt);
+    /**
+     * Transforms a batch of coordinates from the source {@link CoordinateReferenceSystem}
+     * to the target one, in place, using the buffers of a context,
+     * as {@link #transform(double[], double[], double[], int, int)} does.
+     * A failure is recorded in the context before its exception is thrown.
+     *
+     * @param xs      the x ordinates to transform
+     * @param ys      the y ordinates to transform
+     * @param zs      the z ordinates to transform, or <tt>null</tt> if the points have no Z value
+     * @param off     the index of the first point to transform
+     * @param len     the number of points to transform
+     * @param context the context of the calling thread
+     * @throws Proj4jException if a computation error is encountered
+     */
+    public void transform(double[] xs, double[] ys, double[] zs, int off, int len, TransformContext context)
+            throws Proj4jException {
+        checkRange(xs, ys, zs, off, len);
+        context.countPoints(len);
+        try {
+            run(xs, ys, zs, off, len, null, context);
+        } catch (RuntimeException e) {
+            context.recordFailure(TransformStatus.of(e), e);
+            throw e;
         }
+    }
 
-        tgtCRS.getProjection().getAxisOrder().fromENU(tgt);
-
-        return tgt;
+    /**
+     * Transforms a batch of coordinates from the source {@link CoordinateReferenceSystem}
+     * to the target one, in place, recording the points which fail instead of throwing.
+     * <p>
+     * Each point which can't be transformed has its ordinates set to <tt>NaN</tt>
+     * and its entry in <tt>status</tt> set to one of the {@link TransformStatus} codes;
+     * the entries of the other points are set to {@link TransformStatus#OK}.
+     * Points with a <tt>NaN</tt> X or Y ordinate are reported as {@link TransformStatus#INVALID_VALUE},
+     * and points which come out as <tt>NaN</tt> without an exception as {@link TransformStatus#FAILED}.
+     * A failure costs much less than an exception from the other methods,
+     * so this suits batches where some points are expected to lie outside the projection.
+     *
+     * @param xs     the x ordinates to transform
+     * @param ys     the y ordinates to transform
+     * @param zs     the z ordinates to transform, or <tt>null</tt> if the points have no Z value
+     * @param off    the index of the first point to transform
+     * @param len    the number of points to transform
+     * @param status receives the status of each point, at the same index as its ordinates
+     * @return the number of points which failed
+     */
+    public int transform(double[] xs, double[] ys, double[] zs, int off, int len, byte[] status) {
+        return transform(xs, ys, zs, off, len, status, new TransformContext());
     }
 
     /**
-     * Input:  long/lat/z coordinates in radians in the source datum
-     * Output: long/lat/z coordinates in radians in the target datum
+     * Transforms a batch of coordinates, in place, recording the points which fail instead of throwing,
+     * as {@link #transform(double[], double[], double[], int, int, byte[])} does,
+     * using the buffers of a context.
+     * The last failure is also recorded in the context.
      *
-     * @param pt the point containing the input and output values
+     * @param xs      the x ordinates to transform
+     * @param ys      the y ordinates to transform
+     * @param zs      the z ordinates to transform, or <tt>null</tt> if the points have no Z value
+     * @param off     the index of the first point to transform
+     * @param len     the number of points to transform
+     * @param status  receives the status of each point, at the same index as its ordinates
+     * @param context the context of the calling thread
+     * @return the number of points which failed
      */
-    private void datumTransform(ProjCoordinate pt) {
-        /* -------------------------------------------------------------------- */
-        /*      Short cut if the datums are identical.                          */
-        /* -------------------------------------------------------------------- */
-        if (srcCRS.getDatum().isEqual(tgtCRS.getDatum())
-                || srcCRS.getDatum().getTransformType() == Datum.TYPE_UNKNOWN
-                || tgtCRS.getDatum().getTransformType() == Datum.TYPE_UNKNOWN)
-            return;
+    public int transform(double[] xs, double[] ys, double[] zs, int off, int len, byte[] status,
+                         TransformContext context) {
+        checkRange(xs, ys, zs, off, len);
+        if (off + len > status.length)
+            throw new IndexOutOfBoundsException("Invalid batch range: offset " + off + ", length " + len);
+        context.countPoints(len);
+
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (Double.isNaN(xs[i]) || Double.isNaN(ys[i])) {
+                TransformStep.fail(xs, ys, zs, i, status, TransformStatus.INVALID_VALUE, null, context);
+            } else {
+                status[i] = TransformStatus.OK;
+            }
+        }
 
-        /* -------------------------------------------------------------------- */
-        /*	If this datum requires grid shifts, then apply it to geodetic    */
-        /*      coordinates.                                                    */
-        /* -------------------------------------------------------------------- */
-        if (srcCRS.getDatum().getTransformType() == Datum.TYPE_GRIDSHIFT) {
-            srcCRS.getDatum().shift(pt);
+        boolean wasStackless = Proj4jException.setStackless(true);
+        try {
+            run(xs, ys, zs, off, len, status, context);
+        } finally {
+            Proj4jException.setStackless(wasStackless);
         }
 
-        /* ==================================================================== */
-        /*      Do we need to go through geocentric coordinates?                */
-        /* ==================================================================== */
-        if (transformViaGeocentric) {
-            /* -------------------------------------------------------------------- */
-            /*      Convert to geocentric coordinates.                              */
-            /* -------------------------------------------------------------------- */
-            srcGeoConv.convertGeodeticToGeocentric(pt);
-
-            /* -------------------------------------------------------------------- */
-            /*      Convert between datums.                                         */
-            /* -------------------------------------------------------------------- */
-            if (srcCRS.getDatum().hasTransformToWGS84()) {
-                srcCRS.getDatum().transformFromGeocentricToWgs84(pt);
-            }
+        int failed = 0;
+        for (int i = off; i < end; i++) {
+            // some projections give NaN for points they can't show rather than throwing
+            if (status[i] == TransformStatus.OK && (Double.isNaN(xs[i]) || Double.isNaN(ys[i])))
+                TransformStep.fail(xs, ys, zs, i, status, TransformStatus.FAILED, null, context);
+            if (status[i] != TransformStatus.OK) failed++;
+        }
+        return failed;
+    }
 
-            if (tgtCRS.getDatum().hasTransformToWGS84()) {
-                tgtCRS.getDatum().transformToGeocentricFromWgs84(pt);
+    // runs the steps over a batch, recording failures in status if it isn't null
+    private void run(double[] xs, double[] ys, double[] zs, int off, int len, byte[] status,
+                     TransformContext context) {
+        if (zs == null && transformViaGeocentric) {
+            // geocentric steps pass heights between each other, so they need somewhere to keep them;
+            // the points are copied out in blocks, so the heights take little space however large the batch
+            int block = Math.min(len, HEIGHT_BLOCK);
+            context.ensureBlock(block, status != null);
+            double[] bx = context.blockXs;
+            double[] by = context.blockYs;
+            double[] bz = context.blockZs;
+            byte[] bs = status == null ? null : context.blockStatus;
+            for (int start = off, end = off + len; start < end; start += block) {
+                int n = Math.min(block, end - start);
+                System.arraycopy(xs, start, bx, 0, n);
+                System.arraycopy(ys, start, by, 0, n);
+                Arrays.fill(bz, 0, n, Double.NaN);
+                if (bs != null) System.arraycopy(status, start, bs, 0, n);
+                runSteps(bx, by, bz, 0, n, bs, context);
+                System.arraycopy(bx, 0, xs, start, n);
+                System.arraycopy(by, 0, ys, start, n);
+                if (bs != null) System.arraycopy(bs, 0, status, start, n);
             }
-
-            /* -------------------------------------------------------------------- */
-            /*      Convert back to geodetic coordinates.                           */
-            /* -------------------------------------------------------------------- */
-            tgtGeoConv.convertGeocentricToGeodetic(pt);
+            return;
         }
+        runSteps(xs, ys, zs, off, len, status, context);
+    }
 
-        /* -------------------------------------------------------------------- */
-        /*      Apply grid shift to destination if required.                    */
-        /* -------------------------------------------------------------------- */
-        if (tgtCRS.getDatum().getTransformType() == Datum.TYPE_GRIDSHIFT) {
-            tgtCRS.getDatum().inverseShift(pt);
+    private void runSteps(double[] xs, double[] ys, double[] zs, int off, int len, byte[] status,
+                          TransformContext context) {
+        if (status == null) {
+            for (TransformStep step : steps) {
+                step.transform(xs, ys, zs, off, len, context);
+            }
+        } else {
+            for (TransformStep step : steps) {
+                step.transform(xs, ys, zs, off, len, status, context);
+            }
         }
     }
 
+    private static void checkRange(double[] xs, double[] ys, double[] zs, int off, int len) {
+        if (off < 0 || len < 0
+                || off + len > xs.length
+                || off + len > ys.length
+                || (zs != null && off + len > zs.length))
+            throw new IndexOutOfBoundsException("Invalid batch range: offset " + off + ", length " + len);
+    }
 }
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.dabasvijay;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import io.github.dabasvijay.util.BoundedCache;
+
+/**
+ * A {@link CoordinateTransformFactory} which keeps the transforms it creates,
+ * returning the same transform for later requests with the same source and target CRS.
+ * <p>
+ * Coordinate reference systems are matched by their name and PROJ.4 parameters,
+ * so a CRS created again from the same definition finds the cached transform;
+ * those without parameters are matched by identity.
+ * A bounded number of transforms is kept, releasing the least recently used.
+ * <p>
+ * Transforms hold no state between calls, so the cached transforms may be shared between threads,
+ * as may the factory.
+ */
+public class CachingCoordinateTransformFactory extends CoordinateTransformFactory {
+
+    /**
+     * The default maximum number of transforms kept
+     */
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private final BoundedCache<Key, CoordinateTransform> transforms;
+
+    public CachingCoordinateTransformFactory() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a factory keeping at most the given number of transforms.
+     *
+     * @param maxSize the maximum number of transforms to keep
+     */
+    public CachingCoordinateTransformFactory(int maxSize) {
+        // failures are not remembered, as they are rare and cheap to repeat
+        transforms = new BoundedCache<>(maxSize, 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Gets a transformation from a source CRS to a target CRS,
+     * creating it if there is no cached transformation between them.
+     *
+     * @param sourceCRS the source CoordinateReferenceSystem
+     * @param targetCRS the target CoordinateReferenceSystem
+     * @return a tranformation from the source CRS to the target CRS
+     */
+    @Override
+    public CoordinateTransform createTransform(final CoordinateReferenceSystem sourceCRS,
+                                               final CoordinateReferenceSystem targetCRS) {
+        return transforms.get(new Key(sourceCRS, targetCRS), new BoundedCache.Loader<Key, CoordinateTransform>() {
+            @Override
+            public CoordinateTransform load(Key key) {
+                return CachingCoordinateTransformFactory.super.createTransform(sourceCRS, targetCRS);
+            }
+        });
+    }
+
+    /**
+     * Releases all the cached transforms.
+     */
+    public void clear() {
+        transforms.clear();
+    }
+
+    /**
+     * Gets the number of transforms currently cached.
+     */
+    public int size() {
+        return transforms.size();
+    }
+
+    /**
+     * Gets the number of requests answered by a cached transform.
+     */
+    public long getHitCount() {
+        return transforms.getHitCount();
+    }
+
+    /**
+     * Gets the number of requests which created a transform.
+     */
+    public long getMissCount() {
+        return transforms.getMissCount();
+    }
+
+    /**
+     * Gets the number of transforms released to stay within the maximum size.
+     */
+    public long getEvictionCount() {
+        return transforms.getEvictionCount();
+    }
+
+    /**
+     * Gets the total time spent creating transforms, in nanoseconds.
+     */
+    public long getTotalLoadTime() {
+        return transforms.getTotalLoadTime();
+    }
+
+    private static final class Key {
+        private final CoordinateReferenceSystem source;
+        private final CoordinateReferenceSystem target;
+        private final int hash;
+
+        Key(CoordinateReferenceSystem source, CoordinateReferenceSystem target) {
+            this.source = source;
+            this.target = target;
+            this.hash = 31 * hash(source) + hash(target);
+        }
+
+        // CRS equality doesn't cover every projection parameter, so match the definitions instead.
+        // The parameter strings of a CRS keep their hash codes, so this is cheap after the first time.
+        private static int hash(CoordinateReferenceSystem crs) {
+            String[] params = crs.getParameters();
+            if (params == null) return System.identityHashCode(crs);
+            return 31 * Objects.hashCode(crs.getName()) + Arrays.hashCode(params);
+        }
+
+        private static boolean same(CoordinateReferenceSystem crs, CoordinateReferenceSystem other) {
+            if (crs == other) return true;
+            String[] params = crs.getParameters();
+            return params != null && Arrays.equals(params, other.getParameters())
+                    && Objects.equals(crs.getName(), other.getName());
+        }
+
+        @Override
+        public boolean equals(Object that) {
+            if (!(that instanceof Key)) return false;
+            Key key = (Key) that;
+            return hash == key.hash && same(source, key.source) && same(target, key.target);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -44,5 +44,22 @@ public interface CoordinateTransform extends Serializable {
     ProjCoordinate transform(ProjCoordinate src, ProjCoordinate tgt)
             throws Proj4jException;
 
+    /**
+     * Transforms a batch of coordinates from the source {@link CoordinateReferenceSystem}
+     * to the target one, in place.
+     * The ordinates of point <tt>i</tt> are held in
+     * <tt>xs[i]</tt>, <tt>ys[i]</tt> and <tt>zs[i]</tt>.
+     * This avoids creating a {@link ProjCoordinate} for every point,
+     * and is the preferred way of transforming large numbers of points.
+     *
+     * @param xs  the x ordinates to transform
+     * @param ys  the y ordinates to transform
+     * @param zs  the z ordinates to transform, or <tt>null</tt> if the points have no Z value
+     * @param off the index of the first point to transform
+     * @param len the number of points to transform
+     * @throws Proj4jException if a computation error is encountered
+     */
+    void transform(double[] xs, double[] ys, double[] zs, int off, int len)
+            throws Proj4jException;
 
 }
@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.dabasvijay;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A {@link CoordinateTransform} which transforms large batches of coordinates in parallel,
+ * by running another transform over chunks of the batch in a {@link ForkJoinPool}.
+ * <p>
+ * Batches of up to a threshold number of points are transformed on the calling thread.
+ * Larger batches are split into chunks small enough for their ordinates to stay in cache
+ * while each step of the transform is applied to them.
+ * Single coordinates are passed straight to the underlying transform.
+ * <p>
+ * The underlying transform is used by several threads at once, as {@link BasicCoordinateTransform}s may be.
+ * If a chunk fails its exception is thrown, and the points of the other chunks may or may not have been transformed;
+ * {@link #transform(double[], double[], double[], int, int, byte[])} records failing points instead.
+ */
+public class ParallelCoordinateTransform implements CoordinateTransform {
+
+    /**
+     * The default number of points up to which a batch is transformed on the calling thread
+     */
+    public static final int DEFAULT_THRESHOLD = 65536;
+
+    /**
+     * The default number of points in each chunk, whose ordinates take 192 KB
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final CoordinateTransform transform;
+    private final transient ForkJoinPool pool;
+    private final int threshold;
+    private final int chunkSize;
+
+    /**
+     * Creates a parallel transform running in the common fork/join pool.
+     *
+     * @param transform the transform to run
+     */
+    public ParallelCoordinateTransform(CoordinateTransform transform) {
+        this(transform, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a parallel transform.
+     *
+     * @param transform the transform to run
+     * @param pool      the pool to run chunks in
+     * @param threshold the number of points up to which batches are transformed on the calling thread
+     * @param chunkSize the number of points in each chunk
+     */
+    public ParallelCoordinateTransform(CoordinateTransform transform, ForkJoinPool pool, int threshold, int chunkSize) {
+        if (chunkSize < 1) throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        if (threshold < 0) throw new IllegalArgumentException("Threshold must not be negative: " + threshold);
+        this.transform = transform;
+        this.pool = pool;
+        this.threshold = threshold;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public CoordinateReferenceSystem getSourceCRS() {
+        return transform.getSourceCRS();
+    }
+
+    @Override
+    public CoordinateReferenceSystem getTargetCRS() {
+        return transform.getTargetCRS();
+    }
+
+    /**
+     * Gets the transform run over each chunk.
+     */
+    public CoordinateTransform getTransform() {
+        return transform;
+    }
+
+    @Override
+    public ProjCoordinate transform(ProjCoordinate src, ProjCoordinate tgt) throws Proj4jException {
+        return transform.transform(src, tgt);
+    }
+
+    /**
+     * Transforms a batch of coordinates from the source {@link CoordinateReferenceSystem}
+     * to the target one, in place, splitting large batches between the threads of the pool.
+     *
+     * @param xs  the x ordinates to transform
+     * @param ys  the y ordinates to transform
+     * @param zs  the z ordinates to transform, or <tt>null</tt> if the points have no Z value
+     * @param off the index of the first point to transform
+     * @param len the number of points to transform
+     * @throws Proj4jException if a computation error is encountered
+     */
+    @Override
+    public void transform(double[] xs, double[] ys, double[] zs, int off, int len) throws Proj4jException {
+        checkRange(xs, ys, zs, off, len);
+        run(xs, ys, zs, off, len, null);
+    }
+
+    /**
+     * Transforms a batch of coordinates from the source {@link CoordinateReferenceSystem}
+     * to the target one, in place, recording the points which fail instead of throwing,
+     * as {@link BasicCoordinateTransform#transform(double[], double[], double[], int, int, byte[])} does.
+     * Other underlying transforms are run point by point.
+     *
+     * @param xs     the x ordinates to transform
+     * @param ys     the y ordinates to transform
+     * @param zs     the z ordinates to transform, or <tt>null</tt> if the points have no Z value
+     * @param off    the index of the first point to transform
+     * @param len    the number of points to transform
+     * @param status receives the {@link TransformStatus} of each point, at the same index as its ordinates
+     * @return the number of points which failed
+     */
+    public int transform(double[] xs, double[] ys, double[] zs, int off, int len, byte[] status) {
+        checkRange(xs, ys, zs, off, len);
+        if (off + len > status.length)
+            throw new IndexOutOfBoundsException("Invalid batch range: offset " + off + ", length " + len);
+        run(xs, ys, zs, off, len, status);
+
+        int failed = 0;
+        for (int i = off, end = off + len; i < end; i++) {
+            if (status[i] != TransformStatus.OK) failed++;
+        }
+        return failed;
+    }
+
+    private static void checkRange(double[] xs, double[] ys, double[] zs, int off, int len) {
+        if (off < 0 || len < 0
+                || off + len > xs.length
+                || off + len > ys.length
+                || (zs != null && off + len > zs.length))
+            throw new IndexOutOfBoundsException("Invalid batch range: offset " + off + ", length " + len);
+    }
+
+    private void run(double[] xs, double[] ys, double[] zs, int off, int len, byte[] status) {
+        if (len <= threshold) {
+            transformChunk(xs, ys, zs, off, len, status);
+        } else {
+            // the pool isn't serialized, so a deserialized transform uses the common pool
+            (pool != null ? pool : ForkJoinPool.commonPool()).invoke(new Chunk(xs, ys, zs, off, len, status));
+        }
+    }
+
+    // transforms part of a batch on the current thread, recording failures in status if it isn't null
+    private void transformChunk(double[] xs, double[] ys, double[] zs, int off, int len, byte[] status) {
+        if (status == null) {
+            transform.transform(xs, ys, zs, off, len);
+        } else if (transform instanceof BasicCoordinateTransform) {
+            ((BasicCoordinateTransform) transform).transform(xs, ys, zs, off, len, status);
+        } else {
+            transformEach(xs, ys, zs, off, len, status);
+        }
+    }
+
+    private void transformEach(double[] xs, double[] ys, double[] zs, int off, int len, byte[] status) {
+        TransformContext context = new TransformContext();
+        ProjCoordinate pt = context.scratch;
+        boolean wasStackless = Proj4jException.setStackless(true);
+        try {
+            for (int i = off, end = off + len; i < end; i++) {
+                if (Double.isNaN(xs[i]) || Double.isNaN(ys[i])) {
+                    TransformStep.fail(xs, ys, zs, i, status, TransformStatus.INVALID_VALUE, null, context);
+                    continue;
+                }
+                pt.x = xs[i];
+                pt.y = ys[i];
+                pt.z = zs == null ? Double.NaN : zs[i];
+                try {
+                    transform.transform(pt, pt);
+                } catch (RuntimeException e) {
+                    TransformStep.fail(xs, ys, zs, i, status, TransformStatus.of(e), e, context);
+                    continue;
+                }
+                if (Double.isNaN(pt.x) || Double.isNaN(pt.y)) {
+                    TransformStep.fail(xs, ys, zs, i, status, TransformStatus.FAILED, null, context);
+                    continue;
+                }
+                xs[i] = pt.x;
+                ys[i] = pt.y;
+                if (zs != null) zs[i] = pt.z;
+                status[i] = TransformStatus.OK;
+            }
+        } finally {
+            Proj4jException.setStackless(wasStackless);
+        }
+    }
+
+    /**
+     * Transforms part of a batch, splitting it in two until it is no larger than a chunk.
+     */
+    private final class Chunk extends RecursiveAction {
+        private final double[] xs;
+        private final double[] ys;
+        private final double[] zs;
+        private final int off;
+        private final int len;
+        private final byte[] status;
+
+        Chunk(double[] xs, double[] ys, double[] zs, int off, int len, byte[] status) {
+            this.xs = xs;
+            this.ys = ys;
+            this.zs = zs;
+            this.off = off;
+            this.len = len;
+            this.status = status;
+        }
+
+        @Override
+        protected void compute() {
+            if (len <= chunkSize) {
+                transformChunk(xs, ys, zs, off, len, status);
+                return;
+            }
+            // split on a chunk boundary, so every chunk but the last is full
+            int half = (len / chunkSize + 1) / 2 * chunkSize;
+            invokeAll(new Chunk(xs, ys, zs, off, half, status),
+                    new Chunk(xs, ys, zs, off + half, len - half, status));
+        }
+    }
+}
@@ -28,10 +28,35 @@ package io.github.dabasvijay;
  */
 public class Proj4jException extends RuntimeException
 {
+	// set on threads recording failures as status codes, which never look at the stack trace
+	private static final ThreadLocal<Boolean> stackless = new ThreadLocal<>();
+
 	public Proj4jException() {
 	}
 
 	public Proj4jException(String message) {
 		super(message);
 	}
+
+	/**
+	 * Skips capturing the stack trace, which costs more than most computations
+	 * do, while the current thread is only recording which points failed.
+	 */
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		if (stackless.get() == Boolean.TRUE) return this;
+		return super.fillInStackTrace();
+	}
+
+	/**
+	 * Sets whether exceptions created on the current thread capture their stack trace.
+	 *
+	 * @return whether they were stackless before
+	 */
+	static boolean setStackless(boolean enabled) {
+		// set rather than removed, so that batches on the same thread don't allocate an entry each time
+		boolean was = stackless.get() == Boolean.TRUE;
+		stackless.set(enabled);
+		return was;
+	}
 }
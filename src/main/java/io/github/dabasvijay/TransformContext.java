@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.dabasvijay;
+
+import io.github.dabasvijay.datum.GridInterpolator;
+
+/**
+ * The state kept by one thread between transform calls:
+ * scratch buffers, the grid cells last used by datum shifts,
+ * the last error, and counts of the points transformed.
+ * This corresponds to the <tt>PJ_CONTEXT</tt> of PROJ.
+ * <p>
+ * The transform methods taking a context use its buffers instead of allocating their own,
+ * so a loop passing the same context to each call runs without allocating,
+ * and successive points falling in the same grid cell only read the grid once.
+ * <p>
+ * A context is not thread-safe. It belongs to the thread using it,
+ * but may be used with any number of transforms.
+ *
+ * @see BasicCoordinateTransform#transform(ProjCoordinate, ProjCoordinate, TransformContext)
+ */
+public final class TransformContext {
+
+    /**
+     * A coordinate for steps which work a point at a time
+     */
+    final ProjCoordinate scratch = new ProjCoordinate();
+
+    // blocks of a 2D batch being passed through geocentric steps, which need heights
+    double[] blockXs, blockYs, blockZs;
+    byte[] blockStatus;
+
+    private GridInterpolator interpolator;
+
+    private byte lastStatus = TransformStatus.OK;
+    private RuntimeException lastError;
+
+    private long pointCount;
+    private long failureCount;
+    // the cell reads of the interpolator when the counts were last reset
+    private long cellReadsAtReset;
+
+    /**
+     * Gets the interpolator which grid shifts made with this context use,
+     * remembering the grid cells they last read.
+     */
+    public GridInterpolator getGridInterpolator() {
+        if (interpolator == null) interpolator = new GridInterpolator();
+        return interpolator;
+    }
+
+    /**
+     * Gets the status of the last point which failed since the error was last cleared,
+     * or {@link TransformStatus#OK} if none has.
+     */
+    public byte getLastStatus() {
+        return lastStatus;
+    }
+
+    /**
+     * Gets the exception of the last point which failed since the error was last cleared,
+     * or <tt>null</tt> if none has, or it failed without one (for instance because it was <tt>NaN</tt>).
+     */
+    public RuntimeException getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Clears the last error.
+     */
+    public void clearError() {
+        lastStatus = TransformStatus.OK;
+        lastError = null;
+    }
+
+    /**
+     * Gets the number of points transformed with this context, including those which failed.
+     */
+    public long getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * Gets the number of points which failed.
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * Gets the number of times a datum shift with this context read a cell of a grid,
+     * because the point fell outside the cell it used last.
+     */
+    public long getGridCellReads() {
+        return interpolator == null ? 0 : interpolator.getCellReads() - cellReadsAtReset;
+    }
+
+    /**
+     * Clears the last error and the counts.
+     */
+    public void reset() {
+        clearError();
+        pointCount = 0;
+        failureCount = 0;
+        cellReadsAtReset = interpolator == null ? 0 : interpolator.getCellReads();
+    }
+
+    void countPoints(int count) {
+        pointCount += count;
+    }
+
+    void recordFailure(byte status, RuntimeException error) {
+        lastStatus = status;
+        lastError = error;
+        failureCount++;
+    }
+
+    /**
+     * Makes sure the block buffers hold at least a given number of points.
+     */
+    void ensureBlock(int size, boolean withStatus) {
+        if (blockXs == null || blockXs.length < size) {
+            blockXs = new double[size];
+            blockYs = new double[size];
+            blockZs = new double[size];
+        }
+        if (withStatus && (blockStatus == null || blockStatus.length < size)) {
+            blockStatus = new byte[size];
+        }
+    }
+}
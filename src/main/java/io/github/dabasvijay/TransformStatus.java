@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.dabasvijay;
+
+/**
+ * The codes recorded for each point by the batch transforms which report failures
+ * point by point instead of throwing, such as
+ * {@link BasicCoordinateTransform#transform(double[], double[], double[], int, int, byte[])}.
+ * <p>
+ * A point which fails has its ordinates set to <tt>NaN</tt>,
+ * and the code says which kind of exception the point would have thrown.
+ */
+public final class TransformStatus {
+
+    /**
+     * The point was transformed
+     */
+    public static final byte OK = 0;
+
+    /**
+     * An ordinate was <tt>NaN</tt>, or a value was out of range ({@link InvalidValueException})
+     */
+    public static final byte INVALID_VALUE = 1;
+
+    /**
+     * The point lies outside the area a projection can handle ({@link ProjectionException})
+     */
+    public static final byte PROJECTION_FAILED = 2;
+
+    /**
+     * An iterative computation did not converge ({@link ConvergenceFailureException})
+     */
+    public static final byte NOT_CONVERGED = 3;
+
+    /**
+     * The point failed for some other reason, or came out as <tt>NaN</tt>
+     */
+    public static final byte FAILED = 4;
+
+    private TransformStatus() {
+    }
+
+    /**
+     * Gets the status code of a point which failed with an exception.
+     *
+     * @param e the exception thrown for the point
+     * @return the status code
+     */
+    public static byte of(RuntimeException e) {
+        if (e instanceof InvalidValueException) return INVALID_VALUE;
+        if (e instanceof ProjectionException) return PROJECTION_FAILED;
+        if (e instanceof ConvergenceFailureException) return NOT_CONVERGED;
+        return FAILED;
+    }
+
+    /**
+     * Gets a short description of a status code.
+     *
+     * @param status the status code
+     * @return the description
+     */
+    public static String toString(byte status) {
+        switch (status) {
+            case OK:
+                return "ok";
+            case INVALID_VALUE:
+                return "invalid value";
+            case PROJECTION_FAILED:
+                return "projection failed";
+            case NOT_CONVERGED:
+                return "not converged";
+            case FAILED:
+                return "failed";
+            default:
+                return "unknown status " + status;
+        }
+    }
+}
@@ -0,0 +1,540 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.dabasvijay;
+
+import io.github.dabasvijay.datum.AxisOrder;
+import io.github.dabasvijay.datum.Datum;
+import io.github.dabasvijay.datum.GeocentricConverter;
+import io.github.dabasvijay.proj.GeocentProjection;
+import io.github.dabasvijay.proj.Projection;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A single stage of the pipeline planned by a {@link BasicCoordinateTransform}.
+ * <p>
+ * The steps of a transform are worked out once, when the transform is created,
+ * so that transforming a point only runs the stages which actually change it.
+ *
+ * @see BasicCoordinateTransform
+ */
+abstract class TransformStep implements Serializable {
+
+    /**
+     * Applies this step to a single coordinate, in place.
+     *
+     * @param pt the coordinate to transform
+     */
+    abstract void transform(ProjCoordinate pt);
+
+    /**
+     * Applies this step to a single coordinate, in place, using the buffers of a context.
+     * By default this is the same as {@link #transform(ProjCoordinate)}.
+     */
+    void transform(ProjCoordinate pt, TransformContext context) {
+        transform(pt);
+    }
+
+    /**
+     * Applies this step to a batch of coordinates, in place.
+     * By default this runs {@link #transform(ProjCoordinate, TransformContext)}
+     * over the scratch coordinate of the context;
+     * steps which can work on the arrays directly should override it.
+     */
+    void transform(double[] xs, double[] ys, double[] zs, int off, int len, TransformContext context) {
+        ProjCoordinate pt = context.scratch;
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            pt.x = xs[i];
+            pt.y = ys[i];
+            pt.z = zs == null ? Double.NaN : zs[i];
+            transform(pt, context);
+            xs[i] = pt.x;
+            ys[i] = pt.y;
+            if (zs != null) zs[i] = pt.z;
+        }
+    }
+
+    /**
+     * Applies this step to a batch of coordinates, in place, recording the points which fail
+     * instead of throwing.
+     * Points whose status is not {@link TransformStatus#OK} are passed over;
+     * points which fail are set to <tt>NaN</tt> and given the status of their exception.
+     */
+    void transform(double[] xs, double[] ys, double[] zs, int off, int len, byte[] status, TransformContext context) {
+        ProjCoordinate pt = context.scratch;
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (status[i] != TransformStatus.OK) continue;
+            pt.x = xs[i];
+            pt.y = ys[i];
+            pt.z = zs == null ? Double.NaN : zs[i];
+            try {
+                transform(pt, context);
+            } catch (RuntimeException e) {
+                fail(xs, ys, zs, i, status, TransformStatus.of(e), e, context);
+                continue;
+            }
+            xs[i] = pt.x;
+            ys[i] = pt.y;
+            if (zs != null) zs[i] = pt.z;
+        }
+    }
+
+    /**
+     * Marks a point of a batch as failed, setting it to <tt>NaN</tt> and recording the failure in a context.
+     *
+     * @param error the exception the point failed with, or <tt>null</tt> if there was none
+     */
+    static void fail(double[] xs, double[] ys, double[] zs, int i, byte[] status, byte code,
+                     RuntimeException error, TransformContext context) {
+        xs[i] = Double.NaN;
+        ys[i] = Double.NaN;
+        if (zs != null) zs[i] = Double.NaN;
+        status[i] = code;
+        context.recordFailure(code, error);
+    }
+
+    /**
+     * Appends a step to a pipeline, merging it into the previous step where possible.
+     * Steps which turn out to do nothing are dropped.
+     */
+    static void append(List<TransformStep> steps, TransformStep step) {
+        if (step instanceof Affine && !steps.isEmpty()) {
+            TransformStep last = steps.get(steps.size() - 1);
+            if (last instanceof Affine) {
+                steps.remove(steps.size() - 1);
+                step = ((Affine) last).then((Affine) step);
+            }
+        }
+        if (step instanceof Helmert && !steps.isEmpty()) {
+            TransformStep last = steps.get(steps.size() - 1);
+            if (last instanceof Helmert) {
+                steps.remove(steps.size() - 1);
+                step = ((Helmert) last).then((Helmert) step);
+            }
+        }
+        if (step instanceof Affine && ((Affine) step).isIdentity()) return;
+        if (step instanceof Helmert && ((Helmert) step).isIdentity()) return;
+        steps.add(step);
+    }
+
+    /**
+     * An affine step in which every output ordinate depends on at most one input ordinate,
+     * ie. <tt>out[i] = scale[i] * in[source[i]] + offset[i]</tt>.
+     * This covers axis swaps, axis flips, meridian offsets and clearing the Z ordinate,
+     * and is closed under composition so adjacent steps can be merged into one.
+     */
+    static final class Affine extends TransformStep {
+
+        // index of the input ordinate used for each output ordinate, or -1 for a constant
+        private final int[] source;
+        private final double[] scale;
+        private final double[] offset;
+
+        private Affine(int[] source, double[] scale, double[] offset) {
+            this.source = source;
+            this.scale = scale;
+            this.offset = offset;
+        }
+
+        static Affine identity() {
+            return new Affine(new int[]{0, 1, 2}, new double[]{1, 1, 1}, new double[]{0, 0, 0});
+        }
+
+        static Affine offsetX(double dx) {
+            Affine a = identity();
+            a.offset[0] = dx;
+            return a;
+        }
+
+        static Affine clearZ() {
+            Affine a = identity();
+            a.source[2] = -1;
+            a.scale[2] = 0;
+            a.offset[2] = Double.NaN;
+            return a;
+        }
+
+        static Affine toENU(AxisOrder axes) {
+            ProjCoordinate probe = probe();
+            axes.toENU(probe);
+            return fromProbe(probe);
+        }
+
+        static Affine fromENU(AxisOrder axes) {
+            ProjCoordinate probe = probe();
+            axes.fromENU(probe);
+            return fromProbe(probe);
+        }
+
+        // AxisOrder only moves and negates ordinates, so running it over
+        // (1, 2, 3) shows where each output ordinate comes from
+        private static ProjCoordinate probe() {
+            return new ProjCoordinate(1, 2, 3);
+        }
+
+        private static Affine fromProbe(ProjCoordinate probe) {
+            Affine a = identity();
+            double[] values = {probe.x, probe.y, probe.z};
+            for (int i = 0; i < 3; i++) {
+                a.source[i] = (int) Math.abs(values[i]) - 1;
+                a.scale[i] = Math.signum(values[i]);
+            }
+            return a;
+        }
+
+        /**
+         * Composes this step with one applied after it.
+         */
+        Affine then(Affine next) {
+            Affine a = identity();
+            for (int i = 0; i < 3; i++) {
+                int j = next.source[i];
+                if (j < 0) {
+                    a.source[i] = -1;
+                    a.scale[i] = 0;
+                    a.offset[i] = next.offset[i];
+                } else {
+                    a.source[i] = source[j];
+                    a.scale[i] = next.scale[i] * scale[j];
+                    a.offset[i] = next.scale[i] * offset[j] + next.offset[i];
+                }
+            }
+            return a;
+        }
+
+        boolean isIdentity() {
+            for (int i = 0; i < 3; i++) {
+                if (source[i] != i || scale[i] != 1 || offset[i] != 0) return false;
+            }
+            return true;
+        }
+
+        private double apply(int i, double x, double y, double z) {
+            switch (source[i]) {
+                case 0:
+                    return scale[i] * x + offset[i];
+                case 1:
+                    return scale[i] * y + offset[i];
+                case 2:
+                    return scale[i] * z + offset[i];
+                default:
+                    return offset[i];
+            }
+        }
+
+        @Override
+        void transform(ProjCoordinate pt) {
+            double x = pt.x;
+            double y = pt.y;
+            double z = pt.z;
+            pt.x = apply(0, x, y, z);
+            pt.y = apply(1, x, y, z);
+            pt.z = apply(2, x, y, z);
+        }
+
+        @Override
+        void transform(double[] xs, double[] ys, double[] zs, int off, int len, TransformContext context) {
+            int end = off + len;
+            for (int i = off; i < end; i++) {
+                double x = xs[i];
+                double y = ys[i];
+                double z = zs == null ? Double.NaN : zs[i];
+                xs[i] = apply(0, x, y, z);
+                ys[i] = apply(1, x, y, z);
+                if (zs != null) zs[i] = apply(2, x, y, z);
+            }
+        }
+
+        @Override
+        void transform(double[] xs, double[] ys, double[] zs, int off, int len, byte[] status,
+                       TransformContext context) {
+            // never fails, and points which already failed stay NaN
+            transform(xs, ys, zs, off, len, context);
+        }
+    }
+
+    /**
+     * Inverse-projects from the source projection to geographic radians.
+     */
+    static final class InverseProjection extends TransformStep {
+        private final Projection projection;
+        private final boolean batch;
+
+        InverseProjection(Projection projection) {
+            this.projection = projection;
+            // the geocentric projection works on all three ordinates
+            batch = !(projection instanceof GeocentProjection);
+        }
+
+        @Override
+        void transform(ProjCoordinate pt) {
+            projection.inverseProjectRadians(pt, pt);
+        }
+
+        @Override
+        void transform(double[] xs, double[] ys, double[] zs, int off, int len, TransformContext context) {
+            if (batch) {
+                projection.inverseProjectRadians(xs, ys, off, len);
+            } else {
+                super.transform(xs, ys, zs, off, len, context);
+            }
+        }
+    }
+
+    /**
+     * Projects from geographic radians to the target projection.
+     */
+    static final class ForwardProjection extends TransformStep {
+        private final Projection projection;
+        private final boolean batch;
+
+        ForwardProjection(Projection projection) {
+            this.projection = projection;
+            // the geocentric projection works on all three ordinates
+            batch = !(projection instanceof GeocentProjection);
+        }
+
+        @Override
+        void transform(ProjCoordinate pt) {
+            projection.projectRadians(pt, pt);
+        }
+
+        @Override
+        void transform(double[] xs, double[] ys, double[] zs, int off, int len, TransformContext context) {
+            if (batch) {
+                projection.projectRadians(xs, ys, off, len);
+            } else {
+                super.transform(xs, ys, zs, off, len, context);
+            }
+        }
+    }
+
+    /**
+     * Applies the grid shift of a datum, or its inverse.
+     */
+    static final class GridShift extends TransformStep {
+        private final Datum datum;
+        private final boolean inverse;
+
+        GridShift(Datum datum, boolean inverse) {
+            this.datum = datum;
+            this.inverse = inverse;
+        }
+
+        @Override
+        void transform(ProjCoordinate pt) {
+            if (inverse) {
+                datum.inverseShift(pt);
+            } else {
+                datum.shift(pt);
+            }
+        }
+
+        @Override
+        void transform(ProjCoordinate pt, TransformContext context) {
+            if (inverse) {
+                datum.inverseShift(pt, context);
+            } else {
+                datum.shift(pt, context);
+            }
+        }
+
+        @Override
+        void transform(double[] xs, double[] ys, double[] zs, int off, int len, TransformContext context) {
+            if (inverse) {
+                datum.inverseShift(xs, ys, off, len, context);
+            } else {
+                datum.shift(xs, ys, off, len, context);
+            }
+        }
+
+        @Override
+        void transform(double[] xs, double[] ys, double[] zs, int off, int len, byte[] status,
+                       TransformContext context) {
+            // points which fall outside the grids, or already failed, are left as they are,
+            // so this only throws if the grids can't be read, which fails every point
+            try {
+                transform(xs, ys, zs, off, len, context);
+            } catch (RuntimeException e) {
+                byte code = TransformStatus.of(e);
+                for (int i = off, end = off + len; i < end; i++) {
+                    if (status[i] == TransformStatus.OK) fail(xs, ys, zs, i, status, code, e, context);
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts geodetic coordinates to geocentric ones.
+     */
+    static final class GeodeticToGeocentric extends TransformStep {
+        private final GeocentricConverter converter;
+
+        GeodeticToGeocentric(GeocentricConverter converter) {
+            this.converter = converter;
+        }
+
+        @Override
+        void transform(ProjCoordinate pt) {
+            converter.convertGeodeticToGeocentric(pt);
+        }
+    }
+
+    /**
+     * Converts geocentric coordinates to geodetic ones.
+     */
+    static final class GeocentricToGeodetic extends TransformStep {
+        private final GeocentricConverter converter;
+
+        GeocentricToGeodetic(GeocentricConverter converter) {
+            this.converter = converter;
+        }
+
+        @Override
+        void transform(ProjCoordinate pt) {
+            converter.convertGeocentricToGeodetic(pt);
+        }
+    }
+
+    /**
+     * Applies the 3- or 7-parameter transforms of datums to and from WGS84 to geocentric coordinates,
+     * as a single affine transform <tt>out[i] = m[4i] x + m[4i+1] y + m[4i+2] z + m[4i+3]</tt>.
+     * The shift from one datum to WGS84 and on to another is composed into one matrix,
+     * so a point is only multiplied once, and shifts which cancel out are dropped.
+     */
+    static final class Helmert extends TransformStep {
+
+        private final double[] m;
+
+        private Helmert(double[] m) {
+            this.m = m;
+        }
+
+        static Helmert identity() {
+            return new Helmert(new double[]{
+                    1, 0, 0, 0,
+                    0, 1, 0, 0,
+                    0, 0, 1, 0});
+        }
+
+        /**
+         * Creates the shift from the geocentric coordinates of a datum to WGS84,
+         * as {@link Datum#transformFromGeocentricToWgs84} does.
+         */
+        static Helmert toWgs84(Datum datum) {
+            Helmert h = identity();
+            if (!datum.hasTransformToWGS84()) return h;
+            double[] t = datum.getTransformToWGS84();
+            if (t.length == 7) {
+                double rx = t[3], ry = t[4], rz = t[5], scale = t[6];
+                double[] m = h.m;
+                m[1] = -rz * scale;
+                m[2] = ry * scale;
+                m[4] = rz * scale;
+                m[6] = -rx * scale;
+                m[8] = -ry * scale;
+                m[9] = rx * scale;
+                m[0] = m[5] = m[10] = scale;
+            }
+            h.m[3] = t[0];
+            h.m[7] = t[1];
+            h.m[11] = t[2];
+            return h;
+        }
+
+        /**
+         * Creates the shift from WGS84 to the geocentric coordinates of a datum,
+         * as {@link Datum#transformToGeocentricFromWgs84} does.
+         * For 7-parameter transforms this transposes the rotation rather than inverting it exactly, as proj.4 does.
+         */
+        static Helmert fromWgs84(Datum datum) {
+            if (!datum.hasTransformToWGS84()) return identity();
+            double[] t = datum.getTransformToWGS84();
+            Helmert shift = identity();
+            shift.m[3] = -t[0];
+            shift.m[7] = -t[1];
+            shift.m[11] = -t[2];
+            if (t.length != 7) return shift;
+
+            double rx = t[3], ry = t[4], rz = t[5], scale = t[6];
+            Helmert rotate = new Helmert(new double[]{
+                    1 / scale, rz / scale, -ry / scale, 0,
+                    -rz / scale, 1 / scale, rx / scale, 0,
+                    ry / scale, -rx / scale, 1 / scale, 0});
+            return shift.then(rotate);
+        }
+
+        /**
+         * Creates the step applying this one, then another.
+         */
+        Helmert then(Helmert next) {
+            double[] a = m;
+            double[] b = next.m;
+            double[] c = new double[12];
+            for (int row = 0; row < 3; row++) {
+                for (int col = 0; col < 4; col++) {
+                    double v = col == 3 ? b[4 * row + 3] : 0;
+                    for (int k = 0; k < 3; k++) {
+                        v += b[4 * row + k] * a[4 * k + col];
+                    }
+                    c[4 * row + col] = v;
+                }
+            }
+            return new Helmert(c);
+        }
+
+        boolean isIdentity() {
+            return Arrays.equals(m, identity().m);
+        }
+
+        @Override
+        void transform(ProjCoordinate pt) {
+            double x = pt.x;
+            double y = pt.y;
+            double z = pt.z;
+            pt.x = m[0] * x + m[1] * y + m[2] * z + m[3];
+            pt.y = m[4] * x + m[5] * y + m[6] * z + m[7];
+            pt.z = m[8] * x + m[9] * y + m[10] * z + m[11];
+        }
+
+        @Override
+        void transform(double[] xs, double[] ys, double[] zs, int off, int len, TransformContext context) {
+            double m0 = m[0], m1 = m[1], m2 = m[2], m3 = m[3];
+            double m4 = m[4], m5 = m[5], m6 = m[6], m7 = m[7];
+            double m8 = m[8], m9 = m[9], m10 = m[10], m11 = m[11];
+            int end = off + len;
+            for (int i = off; i < end; i++) {
+                double x = xs[i];
+                double y = ys[i];
+                double z = zs[i];
+                xs[i] = m0 * x + m1 * y + m2 * z + m3;
+                ys[i] = m4 * x + m5 * y + m6 * z + m7;
+                zs[i] = m8 * x + m9 * y + m10 * z + m11;
+            }
+        }
+
+        @Override
+        void transform(double[] xs, double[] ys, double[] zs, int off, int len, byte[] status,
+                       TransformContext context) {
+            // never fails, and points which already failed stay NaN
+            transform(xs, ys, zs, off, len, context);
+        }
+    }
+}
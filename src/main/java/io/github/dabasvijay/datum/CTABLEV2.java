@@ -16,13 +16,16 @@
 package io.github.dabasvijay.datum;
 
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
-import io.github.dabasvijay.util.FloatPolarCoordinate;
 import io.github.dabasvijay.util.IntPolarCoordinate;
 import io.github.dabasvijay.util.PolarCoordinate;
 
@@ -58,17 +61,50 @@ public final class CTABLEV2 {
         return table;
     }
 
+    /**
+     * Reads the whole conversion matrix of a grid, from a definition positioned at the start of the file.
+     *
+     * @deprecated grids read their own tables, a band of rows at a time as shifts first need them,
+     * so tables no longer need loading; get grids with {@link Grid#fromNadGrids(String)}
+     */
+    @Deprecated
     public static void load(DataInputStream definition, Grid grid) throws IOException {
         Grid.ConversionTable table = grid.table;
-        int entryCount = table.lim.lam * table.lim.phi;
-        FloatPolarCoordinate[] cvs = new FloatPolarCoordinate[entryCount];
-        byte[] buff = new byte[8];
         definition.skipBytes(160);
-        for (int i = 0; i < entryCount; i++) {
-            definition.readFully(buff);
-            cvs[i] = new FloatPolarCoordinate(floatFromBytes(buff, 0), floatFromBytes(buff, 4));
+        table.data = GridShiftData.packed(readRows(definition, table, table.lim.phi));
+    }
+
+    /**
+     * Gets the position of a row of the conversion matrix in the grid file.
+     */
+    static long rowOffset(Grid.ConversionTable table, int row) {
+        return 160 + 8L * table.lim.lam * row;
+    }
+
+    /**
+     * Reads rows of the conversion matrix, starting at the current position of the definition.
+     */
+    static float[] readRows(DataInputStream definition, Grid.ConversionTable table, int rows) throws IOException {
+        int entryCount = table.lim.lam * rows;
+        byte[] buff = new byte[entryCount * 8];
+        definition.readFully(buff);
+        float[] values = new float[entryCount * 2];
+        ByteBuffer.wrap(buff).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Maps the conversion matrix of a grid file into memory, rather than reading it onto the heap.
+     * The file is shared with other processes mapping it, and is not copied into this one.
+     */
+    static void map(File file, Grid grid) throws IOException {
+        Grid.ConversionTable table = grid.table;
+        long entryCount = (long) table.lim.lam * table.lim.phi;
+        try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+            // the mapping remains valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 160, entryCount * 8);
+            table.data = GridShiftData.mapped(buffer.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer());
         }
-        table.cvs = cvs;
     }
 
     private static boolean containsAt(byte[] needle, byte[] haystack, int offset) {
@@ -89,8 +125,4 @@ public final class CTABLEV2 {
     private static int intFromBytes(byte[] b, int offset) {
         return ByteBuffer.wrap(b, offset, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
     }
-
-    private static float floatFromBytes(byte[] b, int offset) {
-        return ByteBuffer.wrap(b, offset, 4).order(ByteOrder.LITTLE_ENDIAN).getFloat();
-    }
 }
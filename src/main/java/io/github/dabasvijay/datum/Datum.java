@@ -21,10 +21,12 @@ import static io.github.dabasvijay.util.ProjectionMath.SECONDS_TO_RAD;
 import static io.github.dabasvijay.util.ProjectionMath.isIdentity;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.List;
 
 import io.github.dabasvijay.ProjCoordinate;
+import io.github.dabasvijay.TransformContext;
 
 
 /**
@@ -65,7 +67,8 @@ public class Datum implements java.io.Serializable {
     public static final Datum WGS84 = new Datum("WGS84", 0, 0, 0, Ellipsoid.WGS84, "WGS84");
     public static final Datum GGRS87 = new Datum("GGRS87", -199.87, 74.79, 246.62, Ellipsoid.GRS80, "Greek_Geodetic_Reference_System_1987");
     public static final Datum NAD83 = new Datum("NAD83", 0, 0, 0, Ellipsoid.GRS80, "North_American_Datum_1983");
-    public static final Datum NAD27; // uses static initializer block so we can catch an exception
+    // the grids are only looked for when NAD27 is first used for a datum transform
+    public static final Datum NAD27 = new Datum("NAD27", "@conus,@alaska,@ntv2_0.gsb,@ntv1_can.dat", Ellipsoid.CLARKE_1866, "North_American_Datum_1927");
     public static final Datum POTSDAM = new Datum("potsdam", 598.1, 73.7, 418.2, 0.202, 0.045, -2.455, 6.7, Ellipsoid.BESSEL, "Potsdam Rauenberg 1950 DHDN");
     public static final Datum CARTHAGE = new Datum("carthage", -263.0, 6.0, 431.0, Ellipsoid.CLARKE_1880, "Carthage 1934 Tunisia");
     public static final Datum HERMANNSKOGEL = new Datum("hermannskogel", 577.326, 90.129, 463.919, 5.137, 1.474, 5.297, 2.4232, Ellipsoid.BESSEL, "Hermannskogel");
@@ -73,24 +76,23 @@ public class Datum implements java.io.Serializable {
     public static final Datum NZGD49 = new Datum("nzgd49", 59.47, -5.04, 187.44, 0.47, -0.1, 1.024, -4.5993, Ellipsoid.INTERNATIONAL, "New Zealand Geodetic Datum 1949");
     public static final Datum OSGB36 = new Datum("OSGB36", 446.448, -125.157, 542.06, 0.15, 0.247, 0.842, -20.489, Ellipsoid.AIRY, "Airy 1830");
 
-    static {
-        Datum temp = new Datum("NAD27", new ArrayList<Grid>(), Ellipsoid.CLARKE_1866, "North_American_Datum_1927");
-        try {
-            temp = new Datum("NAD27", Grid.fromNadGrids("@conus,@alaska,@ntv2_0.gsb,@ntv1_can.dat"), Ellipsoid.CLARKE_1866, "North_American_Datum_1927");
-        } catch (IOException e) {
-            // TODO: Logging
-        }
-        NAD27 = temp;
-    }
+    // the value computed for the class before the grid names and index were added, so that older serialized forms still read
+    private static final long serialVersionUID = -7070780190787623368L;
 
     private String code;
     private String name;
     private Ellipsoid ellipsoid;
     private double[] transform = DEFAULT_TRANSFORM;
-    private List<Grid> grids = null;
+    private volatile List<Grid> grids = null;
+    private transient volatile GridIndex gridIndex = null;
+    /**
+     * Grid names to resolve into {@link #grids} when they are first needed
+     */
+    private String gridNames = null;
 
-    private Datum(String code, List<Grid> grids, Ellipsoid ellipsoid, String name) {
-        this(code, (double[]) null, grids, ellipsoid, name);
+    private Datum(String code, String gridNames, Ellipsoid ellipsoid, String name) {
+        this(code, (double[]) null, null, ellipsoid, name);
+        this.gridNames = gridNames;
     }
 
     public Datum(String code,
@@ -147,6 +149,7 @@ public class Datum implements java.io.Serializable {
     }
 
     public int getTransformType() {
+        List<Grid> grids = getGrids();
         if (grids != null && grids.size() > 0) return TYPE_GRIDSHIFT;
 
         if (Ellipsoid.WGS84.equals(ellipsoid) || Ellipsoid.GRS80.equals(ellipsoid)) {
@@ -201,7 +204,7 @@ public class Datum implements java.io.Serializable {
             }
             return true;
         } else if (getTransformType() == TYPE_GRIDSHIFT) {
-            return grids.equals(datum.grids);
+            return getGrids().equals(datum.getGrids());
         }
         return true; // datums are equal
 
@@ -258,10 +261,90 @@ public class Datum implements java.io.Serializable {
     }
 
     public void shift(ProjCoordinate xy) {
-        Grid.shift(grids, false, xy);
+        getGridIndex().shift(false, xy);
     }
 
     public void inverseShift(ProjCoordinate xy) {
-        Grid.shift(grids, true, xy);
+        getGridIndex().shift(true, xy);
+    }
+
+    /**
+     * Shifts a point, given as a longitude and latitude in radians, in place,
+     * starting from the grid cells last used with a context.
+     */
+    public void shift(ProjCoordinate xy, TransformContext context) {
+        getGridIndex().shift(false, xy, context.getGridInterpolator());
+    }
+
+    /**
+     * Inverse shifts a point, given as a longitude and latitude in radians, in place,
+     * starting from the grid cells last used with a context.
+     */
+    public void inverseShift(ProjCoordinate xy, TransformContext context) {
+        getGridIndex().shift(true, xy, context.getGridInterpolator());
+    }
+
+    /**
+     * Shifts a batch of points, given as longitudes and latitudes in radians, in place.
+     */
+    public void shift(double[] lams, double[] phis, int off, int len) {
+        getGridIndex().shift(false, lams, phis, off, len, new GridInterpolator());
+    }
+
+    /**
+     * Inverse shifts a batch of points, given as longitudes and latitudes in radians, in place.
+     */
+    public void inverseShift(double[] lams, double[] phis, int off, int len) {
+        getGridIndex().shift(true, lams, phis, off, len, new GridInterpolator());
+    }
+
+    /**
+     * Shifts a batch of points, given as longitudes and latitudes in radians, in place,
+     * starting from the grid cells last used with a context.
+     */
+    public void shift(double[] lams, double[] phis, int off, int len, TransformContext context) {
+        getGridIndex().shift(false, lams, phis, off, len, context.getGridInterpolator());
+    }
+
+    /**
+     * Inverse shifts a batch of points, given as longitudes and latitudes in radians, in place,
+     * starting from the grid cells last used with a context.
+     */
+    public void inverseShift(double[] lams, double[] phis, int off, int len, TransformContext context) {
+        getGridIndex().shift(true, lams, phis, off, len, context.getGridInterpolator());
+    }
+
+    private GridIndex getGridIndex() {
+        GridIndex gridIndex = this.gridIndex;
+        if (gridIndex == null) {
+            List<Grid> grids = getGrids();
+            gridIndex = new GridIndex(grids == null ? new ArrayList<Grid>() : grids);
+            this.gridIndex = gridIndex;
+        }
+        return gridIndex;
+    }
+
+    /**
+     * Gets the shift grids of this datum, looking for them if this has not been done already.
+     * Grids which cannot be found are left out, as they are optional.
+     */
+    private List<Grid> getGrids() {
+        List<Grid> grids = this.grids;
+        if (grids == null && gridNames != null) {
+            try {
+                grids = Grid.fromNadGrids(gridNames);
+            } catch (IOException e) {
+                // TODO: Logging
+                grids = new ArrayList<Grid>();
+            }
+            this.grids = grids;
+        }
+        return grids;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // grids named rather than given are looked for again where the datum is read
+        if (gridNames != null) grids = null;
     }
 }
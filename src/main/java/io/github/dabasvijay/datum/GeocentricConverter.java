@@ -15,6 +15,9 @@
  */
 package io.github.dabasvijay.datum;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
 import io.github.dabasvijay.ProjCoordinate;
 import io.github.dabasvijay.util.ProjectionMath;
 
@@ -52,12 +55,17 @@ public class GeocentricConverter implements java.io.Serializable {
    *    GEOCENTRIC has no restrictions.
    */
 
+    // the value computed for the class before bOverA was added, so that older serialized forms still read
+    private static final long serialVersionUID = -2201990822894805274L;
+
     double a;
     double b;
     double a2;
     double b2;
     double e2;
     double ep2;
+    // b / a, kept consistent with a and e2 when they are overridden; derived from e2, so not serialized
+    transient double bOverA;
 
     public GeocentricConverter(Ellipsoid ellipsoid) {
         // Preserve the ellipsoid value precisions
@@ -71,11 +79,18 @@ public class GeocentricConverter implements java.io.Serializable {
         b2 = b * b;
         this.e2 = e2;
         ep2 = (a2 - b2) / b2;
+        bOverA = Math.sqrt(1 - e2);
     }
 
     public void overrideWithWGS84Params() {
         this.a = Ellipsoid.WGS84.getA();
         this.e2 = Ellipsoid.WGS84.getEccentricitySquared();
+        this.bOverA = Math.sqrt(1 - e2);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        bOverA = Math.sqrt(1 - e2);
     }
 
     public boolean isEqual(GeocentricConverter gc) {
@@ -138,8 +153,72 @@ public class GeocentricConverter implements java.io.Serializable {
         p.z = Z;
     }
 
+    /**
+     * Converts geocentric coordinates (X, Y, Z) to geodetic coordinates
+     * (longitude, latitude and height),
+     * according to the current ellipsoid parameters.
+     * This uses the closed form of {@link #convertGeocentricToGeodeticNonIter},
+     * which agrees with the iterative conversion to well within its 10<sup>-12</sup> tolerance.
+     */
     public void convertGeocentricToGeodetic(ProjCoordinate p) {
-        convertGeocentricToGeodeticIter(p);
+        convertGeocentricToGeodeticNonIter(p);
+    }
+
+    /**
+     * Converts geocentric coordinates (X, Y, Z) to geodetic coordinates
+     * (longitude, latitude and height) in a fixed number of steps, without iterating.
+     * <p>
+     * The latitude is found by two steps of the formula of
+     * B. R. Bowring, <i>Transformation from spatial to geographical coordinates</i>,
+     * Survey Review 23 (1976) 323-327, with the sines and cosines worked out algebraically.
+     * From 10 km below the ellipsoid to 20,000 km above it this is accurate to the last bit of the latitude.
+     * Points deeper than about half way to the centre of the Earth,
+     * where the steps no longer converge quickly enough, are passed to {@link #convertGeocentricToGeodeticIter}.
+     */
+    public void convertGeocentricToGeodeticNonIter(ProjCoordinate p) {
+        double X = p.x;
+        double Y = p.y;
+        double Z = p.hasValidZOrdinate() ? p.z : 0;   //Z value not always supplied
+
+        double P2 = X * X + Y * Y;
+        double Za = Z / this.bOverA;
+        if (!(P2 + Za * Za >= 0.25 * this.a * this.a)) {
+            // deep inside the ellipsoid, or NaN
+            convertGeocentricToGeodeticIter(p);
+            return;
+        }
+        double P = Math.sqrt(P2);
+        double e2a = this.e2 * this.a;
+        double ep2b = e2a / this.bOverA;    /* e'^2 b */
+
+        /* parametric latitude of the point, as its sine and cosine */
+        double tb = Z;
+        double cb = P * this.bOverA;
+        double inv = 1 / Math.sqrt(tb * tb + cb * cb);
+        double sb = tb * inv;
+        cb *= inv;
+        /* first step gives tan(Latitude) = num / den */
+        double num = Z + ep2b * sb * sb * sb;
+        double den = P - e2a * cb * cb * cb;
+
+        /* second step, from the parametric latitude of the first */
+        tb = this.bOverA * num;
+        cb = den;
+        inv = 1 / Math.sqrt(tb * tb + cb * cb);
+        sb = tb * inv;
+        cb *= inv;
+        num = Z + ep2b * sb * sb * sb;
+        den = P - e2a * cb * cb * cb;
+
+        inv = 1 / Math.sqrt(num * num + den * den);
+        double SPHI = num * inv;
+        double CPHI = den * inv;
+
+        /* as the iterative conversion does, points on the axis get a longitude of 0 */
+        p.x = P / this.a < 1.E-12 ? 0.0 : Math.atan2(Y, X);
+        /* atan is cheaper than atan2, which is only needed on the axis */
+        p.y = den > 0 ? Math.atan(num / den) : Math.atan2(num, den);
+        p.z = P * CPHI + Z * SPHI - this.a * Math.sqrt(1.0 - this.e2 * SPHI * SPHI);
     }
 
     public void convertGeocentricToGeodeticIter(ProjCoordinate p) {
@@ -240,6 +319,4 @@ public class GeocentricConverter implements java.io.Serializable {
         p.y = Latitude;
         p.z = Height;
     }
-
-    //TODO: port non-iterative algorithm????
 }
@@ -15,27 +15,33 @@
  */
 package io.github.dabasvijay.datum;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.FileInputStream;
-import java.io.InputStream;
 import java.io.IOException;
 import java.io.Serializable;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
+import io.github.dabasvijay.Proj4jException;
 import io.github.dabasvijay.ProjCoordinate;
-import io.github.dabasvijay.util.FloatPolarCoordinate;
 import io.github.dabasvijay.util.IntPolarCoordinate;
 import io.github.dabasvijay.util.PolarCoordinate;
-import io.github.dabasvijay.util.ProjectionMath;
 
 /**
  * A Grid represents a geodetic datum defining some mapping between a
  * coordinate system referenced to the surface of the earth and spherical
  * coordinates.  Generally Grids are loaded from definition files in the proj4
  * resource directory.
+ * <p>
+ * Grids are shared through the {@link GridCache}, which may release the
+ * conversion table of a grid that has not been used recently.
+ * The table is read again from the definition file when it is next needed.
  */
 // Grid corresponds to the PJ_GRIDINFO struct in proj.4
 public final class Grid implements Serializable {
@@ -54,15 +60,27 @@ public final class Grid implements Serializable {
      */
     private String format;
 
-    private int gridOffset; // Offset in file of the grid definition, for delayed loading
+    private long gridOffset; // Offset in file of the grid definition, for delayed loading
+
+    private boolean bigEndian; // Byte order of the grid definition file, for ntv2
 
     final static int MAX_TRY = 9; // maximum number of iterations for nad conversion algorithm
     final static double TOL = 1e-12; // tolerance for nad conversion algorithm
 
     ConversionTable table;
 
-    private Grid next;
-    private Grid child;
+    Grid next;
+    Grid child;
+
+    /**
+     * Set whenever the grid is used, and cleared by the {@link GridCache} when looking for tables to release
+     */
+    private transient volatile boolean used;
+
+    /**
+     * The approximate number of nodes read from a grid file at a time
+     */
+    private static final int BAND_NODES = 4096;
 
     /**
      * Merge (append) a named grid into the given gridlist.
@@ -72,70 +90,29 @@ public final class Grid implements Serializable {
             String name,
             List<Grid> gridList)
             throws IOException {
-        gridList.add(gridinfoInit(name));
-        // TODO: Maintain cache of loaded grids so we never need more than one
-        // copy of the same grid file loaded in memory
+        // files such as ntv2 ones may hold several top level grids
+        for (Grid grid = GridCache.getGrid(name); grid != null; grid = grid.next) {
+            gridList.add(grid);
+        }
     }
 
     /**
      * Convert between this grid and WGS84, or vice versa if the <code>inverse</code> flag is set.
+     * The grids are scanned in order for each point;
+     * a {@link Datum} keeps an index over its grids, which is faster for many grids.
      */
     // This method corresponds to the pj_apply_gridshift function from proj.4
     public static void shift(List<Grid> grids, boolean inverse, ProjCoordinate in) {
-        PolarCoordinate input = new PolarCoordinate(in.x, in.y),
-                output = new PolarCoordinate(Double.NaN, Double.NaN);
-
-        for (Grid grid : grids) {
-            ConversionTable table = grid.table;
-            // don't shift if the grid is invalid
-            // https://github.com/OSGeo/PROJ/blob/5.2.0/src/pj_gridlist.c#L88
-            if(table == null) continue;
-            double epsilon = (Math.abs(table.del.phi) + Math.abs(table.del.lam)) / 10000d;
-            // Skip tables that don't match our point at all
-            if (table.ll.phi - epsilon > input.phi
-                    || table.ll.lam - epsilon > input.lam
-                    || (table.ll.phi + (table.lim.phi - 1) * table.del.phi + epsilon < input.phi)
-                    || (table.ll.lam + (table.lim.lam - 1) * table.del.lam + epsilon < input.lam))
-                continue;
-
-            // If we have child nodes, check to see if any of them apply
-            while (grid.child != null) {
-                Grid child;
-                for (child = grid.child; child != null; child = child.next) {
-                    ConversionTable t = child.table;
-                    double epsilon0 = (Math.abs(t.del.phi) + Math.abs(t.del.lam)) / 10000d;
-
-                    if (t.ll.phi - epsilon0 > input.phi
-                            || t.ll.lam - epsilon0 > input.lam
-                            || (t.ll.phi + (t.lim.phi - 1) * t.del.phi + epsilon0 < input.phi)
-                            || (t.ll.lam + (t.lim.lam - 1) * t.del.lam + epsilon0 < input.lam))
-                        continue;
-
-                    break;
-                }
-
-                if (child == null) break;
-
-                grid = child;
-            }
-
-            if (grid.table.cvs == null) {
-                // proj.4 only reads headers when 'initializing' a grid and
-                // loads the grid itself here if needed. for now we're just
-                // loading the whole grid at once so this is a no-op
-                // loadConversionTable(table);
-            }
-
-            output = nad_cvt(input, inverse, table);
-        }
+        GridIndex.shift(grids, inverse, in);
+    }
 
-        if (!Double.isNaN(output.lam)) {
-            in.x = output.lam;
-            in.y = output.phi;
-        } else {
-            // Proj.4 guards this with #ifdef ERR_GRID_AREA_TRANSIENT_SEVERE
-            // in.x = in.y = Double.NaN;
-        }
+    /**
+     * Shifts a batch of points, given as longitudes and latitudes in radians, in place.
+     * Runs of points in the same grid cell only read the grid once.
+     * The grids are scanned in order for each point, as by {@link #shift(List, boolean, ProjCoordinate)}.
+     */
+    public static void shift(List<Grid> grids, boolean inverse, double[] lams, double[] phis, int off, int len) {
+        GridIndex.shift(grids, inverse, lams, phis, off, len, new GridInterpolator());
     }
 
     // This class corresponds to the CTABLE struct from proj.4
@@ -157,9 +134,85 @@ public final class Grid implements Serializable {
          */
         public IntPolarCoordinate lim;
         /**
-         * Conversion matrix
+         * Conversion matrix, or <tt>null</tt> if it is not loaded.
+         * It is not serialized, but read again from the grid file when needed.
+         */
+        transient volatile GridShiftData data;
+        /**
+         * Inverse conversion matrix, derived from the conversion matrix when the grid is
+         * first used inversely, or <tt>null</tt> if it has not been built.
+         */
+        transient volatile GridShiftData inverseData;
+        /**
+         * The number of times the matrices have been released, so that an interpolator can tell
+         * whether a cell it has read is still current without keeping them alive.
+         */
+        transient volatile int generation;
+
+        /**
+         * Tests whether a point lies within the grid, give or take a small fraction of a cell.
+         */
+        boolean covers(double lam, double phi) {
+            double epsilon = (Math.abs(del.phi) + Math.abs(del.lam)) / 10000d;
+            return !(ll.phi - epsilon > phi
+                    || ll.lam - epsilon > lam
+                    || (ll.phi + (lim.phi - 1) * del.phi + epsilon < phi)
+                    || (ll.lam + (lim.lam - 1) * del.lam + epsilon < lam));
+        }
+
+        /**
+         * Gets the extent of the points this grid {@link #covers},
+         * as its minimum lam and phi followed by its maximum lam and phi.
+         */
+        void extent(double[] extent, int off) {
+            double epsilon = (Math.abs(del.phi) + Math.abs(del.lam)) / 10000d;
+            extent[off] = ll.lam - epsilon;
+            extent[off + 1] = ll.phi - epsilon;
+            extent[off + 2] = ll.lam + (lim.lam - 1) * del.lam + epsilon;
+            extent[off + 3] = ll.phi + (lim.phi - 1) * del.phi + epsilon;
+        }
+
+        /**
+         * Tests whether the conversion matrix is loaded.
+         */
+        public boolean isLoaded() {
+            return data != null;
+        }
+
+        /**
+         * Gets the longitude shift at a node of the conversion matrix, in radians.
+         *
+         * @param node the index of the node, in row-major order
+         * @throws IllegalStateException if the conversion matrix is not loaded
+         */
+        public float getShiftLam(int node) {
+            return loadedData().lam(node);
+        }
+
+        /**
+         * Gets the latitude shift at a node of the conversion matrix, in radians.
+         *
+         * @param node the index of the node, in row-major order
+         * @throws IllegalStateException if the conversion matrix is not loaded
          */
-        public FloatPolarCoordinate[] cvs;
+        public float getShiftPhi(int node) {
+            return loadedData().phi(node);
+        }
+
+        private GridShiftData loadedData() {
+            GridShiftData data = this.data;
+            if (data == null) throw new IllegalStateException("Conversion matrix of " + id + " is not loaded");
+            return data;
+        }
+
+        /**
+         * Approximate heap size of the loaded conversion matrix and inverse conversion matrix, in bytes
+         */
+        long dataBytes() {
+            GridShiftData data = this.data;
+            GridShiftData inverseData = this.inverseData;
+            return (data == null ? 0 : data.heapBytes()) + (inverseData == null ? 0 : inverseData.heapBytes());
+        }
 
         @Override
         public String toString() {
@@ -171,8 +224,8 @@ public final class Grid implements Serializable {
             int idHash = id == null ? 0 : id.hashCode();
             int delHash = del == null ? 0 : del.hashCode();
             int llHash = ll == null ? 0 : ll.hashCode();
-            int cvsHash = Arrays.hashCode(cvs);
-            return idHash | (11 * delHash) | (23 * llHash) | (37 * cvsHash);
+            int limHash = lim == null ? 0 : lim.hashCode();
+            return idHash | (11 * delHash) | (23 * llHash) | (37 * limHash);
         }
 
         @Override
@@ -185,7 +238,10 @@ public final class Grid implements Serializable {
                 if (!del.equals(ct.del)) return false;
                 if (ll == null && ct.ll != null) return false;
                 if (!ll.equals(ct.ll)) return false;
-                if (!Arrays.equals(cvs, ct.cvs)) return false;
+                // the conversion matrix is determined by the header and the
+                // grid file, and may not be loaded, so it is not compared
+                if (lim == null && ct.lim != null) return false;
+                if (lim != null && !lim.equals(ct.lim)) return false;
                 return true;
             } else {
                 return false;
@@ -193,181 +249,337 @@ public final class Grid implements Serializable {
         }
     }
 
-    // This method corresponds to the nad_cvt function in proj.4
-    private static PolarCoordinate nad_cvt(PolarCoordinate in, boolean inverse, ConversionTable table) {
-        PolarCoordinate t, tb;
-        if (Double.isNaN(in.lam))
-            return in;
-
-        tb = new PolarCoordinate(in);
-        tb.lam -= table.ll.lam;
-        tb.phi -= table.ll.phi;
-        tb.lam = ProjectionMath.normalizeLongitude(tb.lam - Math.PI) + Math.PI;
-        t = nad_intr(tb, table);
-
-        if (inverse) {
-            PolarCoordinate del = new PolarCoordinate(Double.NaN, Double.NaN),
-                    dif = new PolarCoordinate(Double.NaN, Double.NaN);
-            int i = MAX_TRY;
-
-            if (Double.isNaN(t.lam)) return t;
-            t.lam = tb.lam + t.lam;
-            t.phi = tb.phi - t.phi;
-
-            do {
-                del = nad_intr(t, table);
-                if (Double.isNaN(del.lam)) {
-                    // TODO: LOG
-                    // fprintf( stderr, 
-                    //          "Inverse grid shift iteration failed, presumably at grid edge.\n"
-                    //          "Using first approximation.\n" );
-                    break;
-                }
-                t.lam -= dif.lam = t.lam - del.lam - tb.lam;
-                t.phi -= dif.phi = t.phi + del.phi - tb.phi;
-            } while (i-- > 0 && Math.abs(dif.lam) > TOL && Math.abs(dif.phi) > TOL);
-
-            if (i < 0) {
-                // TODO: Log
-                // fprintf( stderr, 
-                //          "Inverse grid shift iterator failed to converge.\n" );
-                t.lam = t.phi = Double.NaN;
-                return t;
-            }
-            in.lam = ProjectionMath.normalizeLongitude(t.lam + table.ll.lam);
-            in.phi = t.phi + table.ll.phi;
-        } else {
-            if (Double.isNaN(t.lam)) {
-                in = t;
-            } else {
-                in.lam -= t.lam;
-                in.phi += t.phi;
+    // This method corresponds to the pj_gridlist_from_nadgrids function in proj.4
+    public static List<Grid> fromNadGrids(String grids) throws IOException {
+        List<Grid> gridlist = new ArrayList<Grid>();
+        for (String gridName : grids.split(",")) {
+            boolean optional = gridName.startsWith("@");
+            if (optional) gridName = gridName.substring(1);
+            try {
+                mergeGridFile(gridName, gridlist);
+            } catch (IOException e) {
+                if (!optional) throw e;
             }
         }
-        return in;
+        return gridlist;
     }
 
-    // This method corresponds to the nad_intr method in proj.4
-    private static PolarCoordinate nad_intr(PolarCoordinate t, ConversionTable table) {
-        t = new PolarCoordinate(t);
-        PolarCoordinate val = new PolarCoordinate(Double.NaN, Double.NaN);
-        IntPolarCoordinate indx = new IntPolarCoordinate(
-                (int) Math.floor(t.lam /= table.del.lam),
-                (int) Math.floor(t.phi /= table.del.phi));
-        PolarCoordinate frct = new PolarCoordinate(t.lam - indx.lam, t.phi - indx.phi);
-        double m00, m10, m01, m11;
-        FloatPolarCoordinate f00, f10, f01, f11;
-        int index;
-        int in;
-
-        if (indx.lam < 0) {
-            if (indx.lam == -1 && frct.lam > 0.99999999999) {
-                ++indx.lam;
-                frct.lam = 0d;
-            } else {
-                return val;
-            }
-        } else if ((in = indx.lam + 1) >= table.lim.lam) {
-            if (in == table.lim.lam && frct.lam < 1e-11) {
-                --indx.lam;
-                frct.lam = 1d;
-            } else {
-                return val;
-            }
-        }
-        if (indx.phi < 0) {
-            if (indx.phi == -1 && frct.phi > 0.99999999999) {
-                ++indx.phi;
-                frct.phi = 0d;
-            } else {
-                return val;
-            }
-        } else if ((in = indx.phi + 1) >= table.lim.phi) {
-            if (in == table.lim.phi && frct.phi < 1e-11) {
-                --indx.phi;
-                frct.phi = 1d;
-            } else {
-                return val;
-            }
-        }
-        index = indx.phi * ((int) table.lim.lam) + indx.lam;
-        f00 = table.cvs[index++];
-        f10 = table.cvs[index];
-        index += table.lim.lam;
-        f11 = table.cvs[index--];
-        f01 = table.cvs[index];
-        m11 = m10 = frct.lam;
-        m00 = m01 = 1d - frct.lam;
-        m11 *= frct.phi;
-        m01 *= frct.phi;
-        val.lam = m00 * f00.lam + m10 * f10.lam + m01 * f01.lam + m11 * f11.lam;
-        val.phi = m00 * f00.phi + m10 * f10.phi + m01 * f01.phi + m11 * f11.phi;
-        return val;
+    /**
+     * Creates a grid over shift values already in memory.
+     */
+    static Grid fromTable(String gridName, ConversionTable table, GridShiftData data) {
+        Grid grid = new Grid();
+        grid.gridName = gridName;
+        grid.format = "memory";
+        grid.table = table;
+        table.data = data;
+        return grid;
     }
 
-
-    // This method corresponds to the pj_gridlist_from_nadgrids function in proj.4
-    public static List<Grid> fromNadGrids(String grids) throws IOException {
-        List<Grid> gridlist = new ArrayList<Grid>();
-        synchronized (Grid.class) {
-            for (String gridName : grids.split(",")) {
-                boolean optional = gridName.startsWith("@");
-                if (optional) gridName = gridName.substring(1);
-                try {
-                    mergeGridFile(gridName, gridlist);
-                } catch (IOException e) {
-                    if (!optional) throw e;
-                }
-            }
+    /**
+     * Adds a subgrid after any existing subgrids of this grid.
+     */
+    void addChild(Grid subgrid) {
+        if (child == null) {
+            child = subgrid;
+            return;
         }
-        return gridlist;
+        Grid last = child;
+        while (last.next != null) last = last.next;
+        last.next = subgrid;
     }
 
     // This method corresponds to the pj_gridinfo_init function in proj.4
-    private static Grid gridinfoInit(String gridName) throws IOException {
+    static Grid gridinfoInit(String gridName, String location) throws IOException {
         Grid grid = new Grid();
         grid.gridName = gridName;
+        grid.fileName = location;
         grid.format = "missing";
         grid.gridOffset = 0;
         if (gridName.equals("null")) return grid;
-        try(DataInputStream gridDefinition = resolveGridDefinition(gridName)) {
-            if (gridDefinition == null) {
-                throw new IOException("Unknown grid: " + gridName);
-            }
+        try(DataInputStream gridDefinition = openGridDefinition(location)) {
             byte[] header = new byte[160];
             gridDefinition.mark(header.length);
             gridDefinition.readFully(header);
             gridDefinition.reset();
             if (CTABLEV2.testHeader(header)) {
                 grid.format = "ctable2";
-                gridDefinition.mark(1024);
                 grid.table = CTABLEV2.init(gridDefinition);
-                gridDefinition.reset();
-                CTABLEV2.load(gridDefinition, grid);
             }
             if (NTV1.testHeader(header)) {
                 grid.format = "ntv1";
-                gridDefinition.mark(1024);
                 grid.table = NTV1.init(gridDefinition);
-                gridDefinition.reset();
-                NTV1.load(gridDefinition, grid);
+            }
+            if (NTV2.testHeader(header)) {
+                grid.format = "ntv2";
+                gridinfoInitNtv2(grid, gridDefinition);
             }
 		}
+        // the conversion matrix is read when it is first needed
         return grid;
     }
 
-    private static DataInputStream resolveGridDefinition(String gridName) throws IOException {
+    /**
+     * Reads the subfile headers of an NTv2 file into a tree of grids,
+     * the first top level subfile becoming the given grid.
+     * Further top level subfiles are linked after it, and subfiles refining another are its children.
+     * The conversion matrix of each subfile is read separately, when it is first needed.
+     */
+    // This method corresponds to the pj_gridinfo_init_ntv2 function in proj.4
+    private static void gridinfoInitNtv2(Grid grid, DataInputStream gridDefinition) throws IOException {
+        int[] subfileCount = new int[1];
+        grid.bigEndian = NTV2.readHeader(gridDefinition, subfileCount);
+        long offset = NTV2.HEADER_SIZE;
+        String[] parentName = new String[1];
+
+        for (int subfile = 0; subfile < subfileCount[0]; subfile++) {
+            ConversionTable table = NTV2.readSubfileHeader(gridDefinition, grid.bigEndian, parentName);
+            offset += NTV2.HEADER_SIZE;
+
+            Grid subgrid;
+            if (subfile == 0) {
+                subgrid = grid;
+            } else {
+                subgrid = new Grid();
+                subgrid.gridName = grid.gridName;
+                subgrid.fileName = grid.fileName;
+                subgrid.format = grid.format;
+                subgrid.bigEndian = grid.bigEndian;
+            }
+            subgrid.table = table;
+            subgrid.gridOffset = offset;
+
+            Grid parent = parentName[0] == null ? null : findSubgrid(grid, parentName[0]);
+            if (parent != null) {
+                parent.addChild(subgrid);
+            } else if (subgrid != grid) {
+                // TODO: LOG if a parent was named
+                // "Failed to find parent %8.8s for %s.", treating it as a top level grid
+                Grid last = grid;
+                while (last.next != null) last = last.next;
+                last.next = subgrid;
+            }
+
+            // skip the records, which are read when needed
+            offset += NTV2.dataSize(table);
+            skipFully(gridDefinition, NTV2.dataSize(table), grid.fileName);
+        }
+    }
+
+    /**
+     * Finds the grid with the given id among a list of grids and their subgrids.
+     */
+    // This method corresponds to the pj_gridinfo_parent function in proj.4
+    private static Grid findSubgrid(Grid grids, String id) {
+        for (Grid grid = grids; grid != null; grid = grid.next) {
+            if (grid.table.id.equals(id)) return grid;
+            Grid found = grid.child == null ? null : findSubgrid(grid.child, id);
+            if (found != null) return found;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the shift values of this grid,
+     * reading it again if it has been released by the {@link GridCache}.
+     */
+    GridShiftData getShiftData() {
+        if (!used) used = true;
+        GridShiftData data = table.data;
+        if (data != null) return data;
+        try {
+            return loadConversionTable();
+        } catch (IOException e) {
+            throw new Proj4jException("Unable to load grid " + gridName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads bands of rows of the conversion matrix from the grid file.
+     */
+    private final class RowReader implements GridShiftData.RowLoader {
+
+        @Override
+        public float[] loadRows(int firstRow, int rows) throws IOException {
+            switch (format) {
+                case "ntv1":
+                    try (DataInputStream gridDefinition = openGridDefinition(fileName, NTV1.rowOffset(table, firstRow))) {
+                        return NTV1.readRows(gridDefinition, table, rows);
+                    }
+                case "ntv2":
+                    long offset = gridOffset + NTV2.rowOffset(table, firstRow);
+                    try (DataInputStream gridDefinition = openGridDefinition(fileName, offset)) {
+                        return NTV2.readRows(gridDefinition, table, rows, bigEndian);
+                    }
+                default:
+                    try (DataInputStream gridDefinition = openGridDefinition(fileName, CTABLEV2.rowOffset(table, firstRow))) {
+                        return CTABLEV2.readRows(gridDefinition, table, rows);
+                    }
+            }
+        }
+
+        @Override
+        public void rowsLoaded(GridShiftData data) {
+            // don't count rows read into a table which has since been released
+            if (table.data == data) GridCache.loaded(Grid.this, table.dataBytes());
+        }
+    }
+
+    /**
+     * Gets the inverse shift values of this grid, building them if inverse tables are enabled.
+     *
+     * @return the inverse shift values, or <tt>null</tt> if {@link GridCache#setInverseTables inverse tables}
+     * are disabled
+     */
+    GridShiftData getInverseData() {
+        if (!GridCache.isInverseTables()) return null;
+        if (!used) used = true;
+        GridShiftData inverseData = table.inverseData;
+        if (inverseData != null) return inverseData;
+        synchronized (this) {
+            inverseData = table.inverseData;
+            if (inverseData != null) return inverseData;
+            // rows are computed in bands as they are used, like the conversion matrix
+            int bandRows = Math.max(1, Math.min(table.lim.phi, BAND_NODES / table.lim.lam));
+            table.inverseData = inverseData = GridShiftData.banded(table.lim.lam, table.lim.phi, bandRows, new InverseRowBuilder());
+        }
+        return inverseData;
+    }
+
+    /**
+     * Computes bands of rows of the inverse conversion matrix from the conversion matrix.
+     */
+    private final class InverseRowBuilder implements GridShiftData.RowLoader {
+
+        @Override
+        public float[] loadRows(int firstRow, int rows) {
+            return new GridInterpolator().invertRows(table, getShiftData(), firstRow, rows);
+        }
+
+        @Override
+        public void rowsLoaded(GridShiftData data) {
+            // don't count rows computed into a table which has since been released
+            if (table.inverseData == data) GridCache.loaded(Grid.this, table.dataBytes());
+        }
+    }
+
+    // This method corresponds to the pj_gridinfo_load function in proj.4
+    private GridShiftData loadConversionTable() throws IOException {
+        GridShiftData data;
+        synchronized (this) {
+            data = table.data;
+            if (data != null) return data;
+            File file = gridFile(fileName);
+            if (format.equals("ctable2") && file != null && GridCache.isMemoryMapping()) {
+                CTABLEV2.map(file, this);
+            } else {
+                // rows are read in bands as they are used, so only the area in use is kept in memory
+                int bandRows = Math.max(1, Math.min(table.lim.phi, BAND_NODES / table.lim.lam));
+                table.data = GridShiftData.banded(table.lim.lam, table.lim.phi, bandRows, new RowReader());
+            }
+            data = table.data;
+        }
+        // reported outside the lock, as the cache may release the tables of other grids
+        GridCache.loaded(this, table.dataBytes());
+        return data;
+    }
+
+    /**
+     * Releases the conversion matrix of this grid.  It is read again when it is next needed.
+     */
+    synchronized void releaseConversionTable() {
+        if (table != null) {
+            table.data = null;
+            table.inverseData = null;
+            table.generation++;
+        }
+    }
+
+    /**
+     * Clears the flag recording that this grid has been used.
+     *
+     * @return whether the grid had been used since the flag was last cleared
+     */
+    boolean clearUsed() {
+        boolean wasUsed = used;
+        used = false;
+        return wasUsed;
+    }
+
+    /**
+     * Finds the location of the definition file for a grid,
+     * as a URL which identifies the file independently of how the grid was named.
+     *
+     * @return the location of the grid definition file, or <tt>null</tt> if it cannot be found
+     */
+    static String resolveGridLocation(String gridName) throws IOException {
+        if (gridName.equals("null")) return gridName;
         // proj.4 also has a couple of environment variables that influence the
         // search path for grid definition files, but for now we only check the
         // working directory and the classpath (in that order.)
         File file = new File(gridName);
-        if (file.exists()) return new DataInputStream(new FileInputStream(file));
-        InputStream resource = Grid.class.getResourceAsStream("/proj4/nad/" + gridName);
-        if (resource != null) return new DataInputStream(resource);
+        if (file.exists()) return file.getCanonicalFile().toURI().toString();
+        URL resource = Grid.class.getResource("/proj4/nad/" + gridName);
+        if (resource != null) return resource.toString();
 
         return null;
     }
 
+    /**
+     * Gets the file a grid location refers to, if it is a file on the local file system.
+     */
+    private static File gridFile(String location) {
+        if (!location.startsWith("file:")) return null;
+        try {
+            return new File(new URI(location));
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static DataInputStream openGridDefinition(String location) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new URL(location).openStream()));
+    }
+
+    /**
+     * Opens a grid definition file at a given position.
+     */
+    private static DataInputStream openGridDefinition(String location, long offset) throws IOException {
+        File file = gridFile(location);
+        if (file != null) {
+            FileInputStream in = new FileInputStream(file);
+            try {
+                in.getChannel().position(offset);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+            return new DataInputStream(new BufferedInputStream(in));
+        }
+
+        // resources can't be read from an arbitrary position, so skip to it
+        DataInputStream in = openGridDefinition(location);
+        try {
+            skipFully(in, offset, location);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+
+    private static void skipFully(DataInputStream in, long bytes, String location) throws IOException {
+        long remaining = bytes;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) throw new EOFException("Unexpected end of grid file " + location);
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
     @Override
     public int hashCode() {
         int nameHash = gridName == null ? 0 : gridName.hashCode();
@@ -375,12 +587,13 @@ public final class Grid implements Serializable {
         int formatHash = format == null ? 0 : format.hashCode();
         int tableHash = table == null ? 0 : table.hashCode();
         int nextHash = next == null ? 0 : next.hashCode();
-        int childHash = next == null ? 0 : next.hashCode();
+        int childHash = child == null ? 0 : child.hashCode();
         return nameHash | (7 * fileHash) | (11 * formatHash) | (17 * tableHash) | (23 * nextHash) | (31 * childHash);
     }
 
     @Override
     public boolean equals(Object that) {
+        if (this == that) return true;
         if (that instanceof Grid) {
             Grid g = (Grid) that;
             if (gridName == null && g.gridName != null) return false;
@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.dabasvijay.datum;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A process-wide cache of {@link Grid}s, so that each grid file is read
+ * at most once however many coordinate systems refer to it.
+ * <p>
+ * Grids are keyed by the location their definition file resolves to,
+ * and concurrent requests for a grid which is not yet loaded wait for a single load.
+ * <p>
+ * The shift tables of all cached grids are kept within a memory budget
+ * (unlimited by default).  When loading a table would exceed the budget,
+ * the tables of grids which have not been used recently are released.
+ * A released table is read again the next time its grid is used.
+ * <p>
+ * Tables of CTABLE V2 grids on the local file system can instead be memory-mapped,
+ * so they take no heap space and are shared with other processes using the same grid.
+ */
+// This corresponds to the grid list cache in pj_gridlist.c in proj.4
+public final class GridCache {
+
+    private static final ConcurrentHashMap<String, FutureTask<Grid>> grids = new ConcurrentHashMap<String, FutureTask<Grid>>();
+
+    // grids whose tables are currently loaded, in the order they were loaded,
+    // and the size of each table; guarded by the class lock
+    private static final List<Grid> loaded = new ArrayList<Grid>();
+    private static final Map<Grid, Long> loadedSizes = new IdentityHashMap<Grid, Long>();
+    private static int clockHand = 0;
+    private static long loadedBytes = 0;
+    private static long memoryBudget = Long.MAX_VALUE;
+    private static volatile boolean memoryMapping = false;
+    private static volatile boolean inverseTables = false;
+    private static volatile double inverseTolerance = 1e-9;
+
+    private static final AtomicLong hitCount = new AtomicLong();
+    private static final AtomicLong missCount = new AtomicLong();
+    private static final AtomicLong loadCount = new AtomicLong();
+    private static final AtomicLong evictionCount = new AtomicLong();
+
+    private GridCache() {
+    }
+
+    /**
+     * Gets the grid with the given name, reading its definition file if it is not already cached.
+     *
+     * @param gridName the name of the grid, eg. <tt>ntv1_can.dat</tt>
+     * @return the grid
+     * @throws IOException if the grid cannot be found or read
+     */
+    static Grid getGrid(final String gridName) throws IOException {
+        final String location = Grid.resolveGridLocation(gridName);
+        if (location == null) {
+            throw new IOException("Unknown grid: " + gridName);
+        }
+
+        FutureTask<Grid> task = grids.get(location);
+        if (task == null) {
+            FutureTask<Grid> newTask = new FutureTask<Grid>(new Callable<Grid>() {
+                @Override
+                public Grid call() throws IOException {
+                    return Grid.gridinfoInit(gridName, location);
+                }
+            });
+            task = grids.putIfAbsent(location, newTask);
+            if (task == null) {
+                task = newTask;
+                missCount.incrementAndGet();
+                task.run();
+            } else {
+                hitCount.incrementAndGet();
+            }
+        } else {
+            hitCount.incrementAndGet();
+        }
+
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            // don't cache failures, the grid file may turn up later
+            grids.remove(location, task);
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading grid " + gridName);
+        }
+    }
+
+    /**
+     * Records that the tables of a grid have been loaded,
+     * releasing the tables of other grids if this exceeds the memory budget.
+     */
+    static synchronized void loaded(Grid grid, long bytes) {
+        loadCount.incrementAndGet();
+        Long previous = loadedSizes.put(grid, bytes);
+        if (previous == null) {
+            loaded.add(grid);
+        } else {
+            loadedBytes -= previous;
+        }
+        loadedBytes += bytes;
+        evict(grid);
+    }
+
+    // Releases tables using the CLOCK approximation of LRU:
+    // grids used since the hand last passed them get a second chance.
+    private static void evict(Grid keep) {
+        int scanned = 0;
+        while (loadedBytes > memoryBudget && !loaded.isEmpty() && scanned < 2 * loaded.size()) {
+            if (clockHand >= loaded.size()) clockHand = 0;
+            Grid grid = loaded.get(clockHand);
+            if (grid == keep || grid.clearUsed()) {
+                clockHand++;
+                scanned++;
+                continue;
+            }
+            loaded.remove(clockHand);
+            loadedBytes -= loadedSizes.remove(grid);
+            grid.releaseConversionTable();
+            evictionCount.incrementAndGet();
+            scanned = 0;
+        }
+    }
+
+    /**
+     * Sets the maximum number of bytes which loaded grid shift tables may occupy.
+     * Tables of grids which have not been used recently are released to stay within the budget.
+     * The most recently loaded grid is always kept.
+     *
+     * @param bytes the memory budget in bytes
+     */
+    public static synchronized void setMemoryBudget(long bytes) {
+        if (bytes < 0) throw new IllegalArgumentException("Memory budget must not be negative: " + bytes);
+        memoryBudget = bytes;
+        evict(null);
+    }
+
+    /**
+     * Sets whether the tables of grids which support it are memory-mapped from their files,
+     * rather than read onto the heap.  This applies to tables loaded after it is set.
+     * Mapped tables do not count towards the memory budget.
+     *
+     * @param mapping whether to memory-map grid tables
+     */
+    public static void setMemoryMapping(boolean mapping) {
+        memoryMapping = mapping;
+    }
+
+    public static boolean isMemoryMapping() {
+        return memoryMapping;
+    }
+
+    /**
+     * Sets whether inverse grid shifts start from a table of inverse shifts,
+     * derived from the grid shift table when a grid is first used inversely.
+     * Without it each inverse shift iterates from the forward shift, taking several lookups per point;
+     * with it an inverse shift is a lookup in the inverse table,
+     * refined against the forward table within the {@link #setInverseTolerance inverse tolerance}.
+     * Inverse tables take the same space as the grid shift tables, and count towards the memory budget.
+     *
+     * @param enabled whether to use inverse tables
+     */
+    public static void setInverseTables(boolean enabled) {
+        inverseTables = enabled;
+    }
+
+    public static boolean isInverseTables() {
+        return inverseTables;
+    }
+
+    /**
+     * Sets the residual at which inverse grid shifts starting from an inverse table stop being refined, in radians.
+     * The residual is checked by shifting the point found forwards, and correcting it by the difference.
+     * The default, <tt>1e-9</tt> (about 6 mm), usually takes a single correction,
+     * giving results within about <tt>1e-11</tt> radians of iterating from the forward shift.
+     * {@link Double#POSITIVE_INFINITY} takes the inverse table lookup as it is, with no refinement,
+     * which is within about <tt>1e-7</tt> radians.
+     *
+     * @param radians the residual at which refinement stops
+     */
+    public static void setInverseTolerance(double radians) {
+        if (!(radians > 0)) throw new IllegalArgumentException("Inverse tolerance must be positive: " + radians);
+        inverseTolerance = radians;
+    }
+
+    public static double getInverseTolerance() {
+        return inverseTolerance;
+    }
+
+    public static synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Gets the approximate number of bytes occupied by the loaded grid shift tables.
+     */
+    public static synchronized long getLoadedBytes() {
+        return loadedBytes;
+    }
+
+    /**
+     * Gets the number of grid requests which were answered from the cache.
+     */
+    public static long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of grid requests which required the grid to be read.
+     */
+    public static long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of times data has been loaded into grid shift tables:
+     * each band of rows read or inverted as shifts first need it, and each table mapped into memory,
+     * including reloads of tables released to stay within the memory budget.
+     */
+    public static long getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * Gets the number of times the tables of a grid have been released to stay within the memory budget.
+     */
+    public static long getEvictionCount() {
+        return evictionCount.get();
+    }
+}
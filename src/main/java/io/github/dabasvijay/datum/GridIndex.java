@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.dabasvijay.datum;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.dabasvijay.ProjCoordinate;
+
+/**
+ * A spatial index over a list of grids and their subgrids,
+ * for finding the grid to shift a point by.
+ * <p>
+ * The grids are chosen as in proj.4: the first grid in the list covering the point,
+ * then repeatedly the first of its subgrids covering the point, down to the most specific one.
+ * If the point can't be shifted by that grid, the next grid in the list covering it is tried.
+ * <p>
+ * The extents of all the grids and subgrids are binned into a uniform grid of cells,
+ * each listing the grids overlapping it in depth-first order,
+ * so only the few grids near a point are looked at.
+ * The index is immutable once built, so may be shared between threads.
+ */
+// This corresponds to the grid selection in the pj_apply_gridshift_3 function in proj.4
+final class GridIndex {
+
+    private static final int MAX_BINS_PER_AXIS = 128;
+
+    /**
+     * Interpolators for single point shifts, so that successive points
+     * shifted by a thread can reuse the last grid cell
+     */
+    private static final ThreadLocal<GridInterpolator> interpolators = new ThreadLocal<GridInterpolator>() {
+        @Override
+        protected GridInterpolator initialValue() {
+            return new GridInterpolator();
+        }
+    };
+
+    // the grids and subgrids in depth-first order, and the position of the parent of each (-1 for none)
+    private final Grid[] grids;
+    private final int[] parents;
+    // the extent each grid covers, as its minimum lam and phi then its maximum lam and phi
+    private final double[] extents;
+
+    private final double minLam, minPhi, maxLam, maxPhi;
+    private final int lamBins, phiBins;
+    private final double lamScale, phiScale;
+    // positions of the grids overlapping each bin, in ascending order
+    private final int[][] bins;
+
+    GridIndex(List<Grid> gridList) {
+        List<Grid> grids = new ArrayList<Grid>();
+        List<Integer> parents = new ArrayList<Integer>();
+        for (int i = 0, n = gridList.size(); i < n; i++) {
+            add(gridList.get(i), -1, grids, parents);
+        }
+        int count = grids.size();
+        this.grids = grids.toArray(new Grid[count]);
+        this.parents = new int[count];
+        for (int i = 0; i < count; i++) this.parents[i] = parents.get(i);
+
+        double[] extents = new double[4 * count];
+        double minLam = Double.POSITIVE_INFINITY, minPhi = Double.POSITIVE_INFINITY;
+        double maxLam = Double.NEGATIVE_INFINITY, maxPhi = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            this.grids[i].table.extent(extents, 4 * i);
+            minLam = Math.min(minLam, extents[4 * i]);
+            minPhi = Math.min(minPhi, extents[4 * i + 1]);
+            maxLam = Math.max(maxLam, extents[4 * i + 2]);
+            maxPhi = Math.max(maxPhi, extents[4 * i + 3]);
+        }
+        this.extents = extents;
+        this.minLam = minLam;
+        this.minPhi = minPhi;
+        this.maxLam = maxLam;
+        this.maxPhi = maxPhi;
+
+        int binsPerAxis = count == 0 ? 1 : Math.min(MAX_BINS_PER_AXIS, 2 * (int) Math.ceil(Math.sqrt(count)));
+        this.lamBins = binsPerAxis;
+        this.phiBins = binsPerAxis;
+        this.lamScale = maxLam > minLam ? lamBins / (maxLam - minLam) : 0;
+        this.phiScale = maxPhi > minPhi ? phiBins / (maxPhi - minPhi) : 0;
+
+        // count the grids in each bin, then fill them in order
+        int[] sizes = new int[lamBins * phiBins];
+        for (int i = 0; i < count; i++) {
+            for (int bin : overlappingBins(extents, i)) sizes[bin]++;
+        }
+        this.bins = new int[sizes.length][];
+        for (int bin = 0; bin < sizes.length; bin++) {
+            this.bins[bin] = new int[sizes[bin]];
+            sizes[bin] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            for (int bin : overlappingBins(extents, i)) this.bins[bin][sizes[bin]++] = i;
+        }
+    }
+
+    private int[] overlappingBins(double[] extents, int i) {
+        int lam0 = lamBin(extents[4 * i]), lam1 = lamBin(extents[4 * i + 2]);
+        int phi0 = phiBin(extents[4 * i + 1]), phi1 = phiBin(extents[4 * i + 3]);
+        int[] overlapping = new int[(lam1 - lam0 + 1) * (phi1 - phi0 + 1)];
+        int n = 0;
+        for (int phi = phi0; phi <= phi1; phi++) {
+            for (int lam = lam0; lam <= lam1; lam++) {
+                overlapping[n++] = phi * lamBins + lam;
+            }
+        }
+        return overlapping;
+    }
+
+    private static void add(Grid grid, int parent, List<Grid> grids, List<Integer> parents) {
+        // grids without a table (ie. the null grid) never shift anything
+        if (grid.table == null) return;
+        int position = grids.size();
+        grids.add(grid);
+        parents.add(parent);
+        for (Grid child = grid.child; child != null; child = child.next) {
+            add(child, position, grids, parents);
+        }
+    }
+
+    private int lamBin(double lam) {
+        return Math.min(lamBins - 1, Math.max(0, (int) ((lam - minLam) * lamScale)));
+    }
+
+    private int phiBin(double phi) {
+        return Math.min(phiBins - 1, Math.max(0, (int) ((phi - minPhi) * phiScale)));
+    }
+
+    /**
+     * Finds the most specific grid to shift a point by, ignoring whether the shift would succeed.
+     *
+     * @return the grid, or <tt>null</tt> if no grid covers the point
+     */
+    Grid find(double lam, double phi) {
+        if (!(lam >= minLam && lam <= maxLam && phi >= minPhi && phi <= maxPhi)) return null;
+        int[] bin = bins[phiBin(phi) * lamBins + lamBin(lam)];
+        int found = find(bin, 0, lam, phi);
+        return found < 0 ? null : grids[bin[found]];
+    }
+
+    /**
+     * Finds the most specific grid covering a point below the first top level grid
+     * covering it from a given position in a bin.
+     *
+     * @return the position in the bin of the grid, or -1 if none was found
+     */
+    private int find(int[] bin, int from, double lam, double phi) {
+        int current = -1;
+        int found = -1;
+        for (int k = from; k < bin.length; k++) {
+            int i = bin[k];
+            // depth-first order puts the subgrids of a grid after it, and before its later siblings
+            if (parents[i] == current && covers(i, lam, phi)) {
+                current = i;
+                found = k;
+            }
+        }
+        return found;
+    }
+
+    private boolean covers(int i, double lam, double phi) {
+        int off = 4 * i;
+        return !(extents[off] > lam || extents[off + 1] > phi || extents[off + 2] < lam || extents[off + 3] < phi);
+    }
+
+    /**
+     * Shifts a point, given as a longitude and latitude in radians, in place.
+     */
+    void shift(boolean inverse, ProjCoordinate in) {
+        shift(inverse, in, interpolators.get());
+    }
+
+    /**
+     * Shifts a point, given as a longitude and latitude in radians, in place,
+     * using a given interpolator.
+     */
+    void shift(boolean inverse, ProjCoordinate in, GridInterpolator interpolator) {
+        if (shift(inverse, in.x, in.y, interpolator)) {
+            in.x = interpolator.lam;
+            in.y = interpolator.phi;
+        } else {
+            // Proj.4 guards this with #ifdef ERR_GRID_AREA_TRANSIENT_SEVERE
+            // in.x = in.y = Double.NaN;
+        }
+    }
+
+    /**
+     * Shifts a batch of points, given as longitudes and latitudes in radians, in place,
+     * using a given interpolator.
+     */
+    void shift(boolean inverse, double[] lams, double[] phis, int off, int len, GridInterpolator interpolator) {
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (shift(inverse, lams[i], phis[i], interpolator)) {
+                lams[i] = interpolator.lam;
+                phis[i] = interpolator.phi;
+            }
+        }
+    }
+
+    private boolean shift(boolean inverse, double lam, double phi, GridInterpolator interpolator) {
+        if (!(lam >= minLam && lam <= maxLam && phi >= minPhi && phi <= maxPhi)) return false;
+        int[] bin = bins[phiBin(phi) * lamBins + lamBin(lam)];
+
+        int from = 0;
+        while (from < bin.length) {
+            int found = find(bin, from, lam, phi);
+            if (found < 0) return false;
+            Grid grid = grids[bin[found]];
+            // proj.4 only reads headers when 'initializing' a grid and
+            // loads the grid itself here if needed
+            GridShiftData inverseData = inverse ? grid.getInverseData() : null;
+            if (interpolator.convert(grid.table, grid.getShiftData(), inverseData, inverse, lam, phi)) return true;
+
+            // try the next top level grid covering the point; the rest of the
+            // subgrids of this one are passed over as they have a parent
+            from = found + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Shifts a point, given as a longitude and latitude in radians, in place,
+     * by scanning a list of grids in order rather than building an index over them.
+     * The grid chosen is the one an index over the list would choose.
+     */
+    static void shift(List<Grid> gridList, boolean inverse, ProjCoordinate in) {
+        GridInterpolator interpolator = interpolators.get();
+        if (scan(gridList, inverse, in.x, in.y, interpolator)) {
+            in.x = interpolator.lam;
+            in.y = interpolator.phi;
+        }
+    }
+
+    /**
+     * Shifts a batch of points, given as longitudes and latitudes in radians, in place,
+     * by scanning a list of grids in order rather than building an index over them.
+     */
+    static void shift(List<Grid> gridList, boolean inverse, double[] lams, double[] phis, int off, int len,
+                      GridInterpolator interpolator) {
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (scan(gridList, inverse, lams[i], phis[i], interpolator)) {
+                lams[i] = interpolator.lam;
+                phis[i] = interpolator.phi;
+            }
+        }
+    }
+
+    private static boolean scan(List<Grid> gridList, boolean inverse, double lam, double phi,
+                                GridInterpolator interpolator) {
+        for (int i = 0, n = gridList.size(); i < n; i++) {
+            Grid grid = gridList.get(i);
+            if (grid.table == null || !grid.table.covers(lam, phi)) continue;
+            // descend through the first subgrid covering the point at each level, as find does
+            Grid child = grid.child;
+            while (child != null) {
+                if (child.table != null && child.table.covers(lam, phi)) {
+                    grid = child;
+                    child = child.child;
+                } else {
+                    child = child.next;
+                }
+            }
+            GridShiftData inverseData = inverse ? grid.getInverseData() : null;
+            if (interpolator.convert(grid.table, grid.getShiftData(), inverseData, inverse, lam, phi)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.dabasvijay.datum;
+
+import io.github.dabasvijay.util.ProjectionMath;
+
+/**
+ * Interpolates grid shifts without allocating, holding its results in fields.
+ * <p>
+ * The shift values at the corners of the last cell used are kept,
+ * so that a run of points falling in the same cell (as is usual for tracks and rasters)
+ * only reads the grid once.
+ * The shift tables themselves are not kept, so an interpolator doesn't stop
+ * the {@link GridCache} from releasing them.
+ * An interpolator is not thread-safe; use one per thread or per batch.
+ * <p>
+ * Outside this package an interpolator is only a handle, kept by a
+ * {@link io.github.dabasvijay.TransformContext} and passed back to the grid shifts of a {@link Datum}.
+ */
+public final class GridInterpolator {
+
+    /**
+     * Longitude and latitude resulting from the last successful {@link #convert}
+     */
+    double lam, phi;
+
+    // the shift resulting from the last successful interpolate
+    private double shiftLam, shiftPhi;
+
+    // the point found by the last successful invert, relative to the grid
+    private double invLam, invPhi;
+
+    // the last cells read from the shift and inverse shift tables
+    private final Cell forwardCell = new Cell();
+    private final Cell inverseCell = new Cell();
+
+    // the number of times a cell has been read from a table
+    private long cellReads;
+
+    public GridInterpolator() {
+    }
+
+    /**
+     * Gets the number of times a grid cell was read because the point fell outside the last one used.
+     */
+    public long getCellReads() {
+        return cellReads;
+    }
+
+    /**
+     * Shifts a point by a grid, or its inverse, setting {@link #lam} and {@link #phi}.
+     *
+     * @param inverseData the inverse shift table of the grid to start the inverse from,
+     *                    or <tt>null</tt> to start from the forward shift
+     * @return <tt>false</tt> if the point could not be shifted
+     */
+    // This method corresponds to the nad_cvt function in proj.4
+    boolean convert(Grid.ConversionTable table, GridShiftData data, GridShiftData inverseData,
+                    boolean inverse, double inLam, double inPhi) {
+        if (Double.isNaN(inLam)) return false;
+
+        double tbLam = inLam - table.ll.lam;
+        double tbPhi = inPhi - table.ll.phi;
+        tbLam = ProjectionMath.normalizeLongitude(tbLam - Math.PI) + Math.PI;
+
+        if (inverse) {
+            boolean inverted;
+            if (inverseData != null) {
+                if (!interpolate(table, inverseData, inverseCell, tbLam, tbPhi)) return false;
+                inverted = invert(table, data, tbLam, tbPhi, tbLam + shiftLam, tbPhi - shiftPhi,
+                        GridCache.getInverseTolerance());
+            } else {
+                inverted = invert(table, data, tbLam, tbPhi);
+            }
+            if (!inverted) return false;
+            lam = ProjectionMath.normalizeLongitude(invLam + table.ll.lam);
+            phi = invPhi + table.ll.phi;
+        } else {
+            if (!interpolate(table, data, forwardCell, tbLam, tbPhi)) return false;
+            lam = inLam - shiftLam;
+            phi = inPhi + shiftPhi;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the point which the grid shifts to a given point, both relative to the grid,
+     * starting from the point shifted backwards.
+     *
+     * @return <tt>false</tt> if the point is outside the grid or the iteration fails to converge
+     */
+    private boolean invert(Grid.ConversionTable table, GridShiftData data, double tbLam, double tbPhi) {
+        if (!interpolate(table, data, forwardCell, tbLam, tbPhi)) return false;
+        return invert(table, data, tbLam, tbPhi, tbLam + shiftLam, tbPhi - shiftPhi, Grid.TOL);
+    }
+
+    /**
+     * Finds the point which the grid shifts to a given point, both relative to the grid,
+     * refining a first approximation until the change is within a tolerance.
+     * Sets {@link #invLam} and {@link #invPhi}.
+     */
+    private boolean invert(Grid.ConversionTable table, GridShiftData data, double tbLam, double tbPhi,
+                           double tLam, double tPhi, double tolerance) {
+        if (tolerance == Double.POSITIVE_INFINITY) {
+            invLam = tLam;
+            invPhi = tPhi;
+            return true;
+        }
+
+        double difLam = Double.NaN, difPhi = Double.NaN;
+        int i = Grid.MAX_TRY;
+
+        do {
+            if (!interpolate(table, data, forwardCell, tLam, tPhi)) {
+                // TODO: LOG
+                // fprintf( stderr,
+                //          "Inverse grid shift iteration failed, presumably at grid edge.\n"
+                //          "Using first approximation.\n" );
+                break;
+            }
+            tLam -= difLam = tLam - shiftLam - tbLam;
+            tPhi -= difPhi = tPhi + shiftPhi - tbPhi;
+        } while (i-- > 0 && Math.abs(difLam) > tolerance && Math.abs(difPhi) > tolerance);
+
+        if (i < 0) {
+            // TODO: Log
+            // fprintf( stderr,
+            //          "Inverse grid shift iterator failed to converge.\n" );
+            return false;
+        }
+        invLam = tLam;
+        invPhi = tPhi;
+        return true;
+    }
+
+    /**
+     * Computes rows of the inverse shift table of a grid: for each node,
+     * the shift taking the node back to the point the grid shifts onto it,
+     * in the same form as the shift table.
+     */
+    float[] invertRows(Grid.ConversionTable table, GridShiftData data, int firstRow, int rows) {
+        int columns = table.lim.lam;
+        float[] values = new float[2 * columns * rows];
+        for (int row = 0; row < rows; row++) {
+            double tbPhi = (firstRow + row) * table.del.phi;
+            for (int col = 0; col < columns; col++) {
+                double tbLam = col * table.del.lam;
+                int node = row * columns + col;
+                if (invert(table, data, tbLam, tbPhi)) {
+                    values[2 * node] = (float) (invLam - tbLam);
+                    values[2 * node + 1] = (float) (tbPhi - invPhi);
+                } else {
+                    // use the first approximation, as the iteration does
+                    values[2 * node] = data.lam((firstRow + row) * columns + col);
+                    values[2 * node + 1] = data.phi((firstRow + row) * columns + col);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Interpolates the shift at a point given relative to the lower left corner of a grid.
+     *
+     * @return <tt>false</tt> if the point is outside the grid
+     */
+    // This method corresponds to the nad_intr method in proj.4
+    private boolean interpolate(Grid.ConversionTable table, GridShiftData data, Cell cell,
+                                double tLam, double tPhi) {
+        tLam /= table.del.lam;
+        tPhi /= table.del.phi;
+        int indxLam = (int) Math.floor(tLam);
+        int indxPhi = (int) Math.floor(tPhi);
+        double frctLam = tLam - indxLam;
+        double frctPhi = tPhi - indxPhi;
+        int in;
+
+        if (indxLam < 0) {
+            if (indxLam == -1 && frctLam > 0.99999999999) {
+                ++indxLam;
+                frctLam = 0d;
+            } else {
+                return false;
+            }
+        } else if ((in = indxLam + 1) >= table.lim.lam) {
+            if (in == table.lim.lam && frctLam < 1e-11) {
+                --indxLam;
+                frctLam = 1d;
+            } else {
+                return false;
+            }
+        }
+        if (indxPhi < 0) {
+            if (indxPhi == -1 && frctPhi > 0.99999999999) {
+                ++indxPhi;
+                frctPhi = 0d;
+            } else {
+                return false;
+            }
+        } else if ((in = indxPhi + 1) >= table.lim.phi) {
+            if (in == table.lim.phi && frctPhi < 1e-11) {
+                --indxPhi;
+                frctPhi = 1d;
+            } else {
+                return false;
+            }
+        }
+
+        if (!cell.holds(table, indxLam, indxPhi)) {
+            cell.read(table, data, indxLam, indxPhi);
+            cellReads++;
+        }
+
+        double m00, m10, m01, m11;
+        m11 = m10 = frctLam;
+        m00 = m01 = 1d - frctLam;
+        m11 *= frctPhi;
+        m01 *= frctPhi;
+        frctPhi = 1d - frctPhi;
+        m00 *= frctPhi;
+        m10 *= frctPhi;
+        float[] f = cell.corners;
+        shiftLam = m00 * f[0] + m10 * f[2] + m01 * f[4] + m11 * f[6];
+        shiftPhi = m00 * f[1] + m10 * f[3] + m01 * f[5] + m11 * f[7];
+        return true;
+    }
+
+    /**
+     * A cell of a shift table, and the shifts at its corners.
+     * The cell is identified by the grid and the generation of its tables, rather than by the table it was read from;
+     * each cell is only read from one kind of table, forward or inverse.
+     */
+    private static final class Cell {
+        Grid.ConversionTable table;
+        int generation;
+        int lam, phi;
+        final float[] corners = new float[8];
+
+        boolean holds(Grid.ConversionTable table, int indxLam, int indxPhi) {
+            return table == this.table && indxLam == lam && indxPhi == phi && table.generation == generation;
+        }
+
+        void read(Grid.ConversionTable table, GridShiftData data, int indxLam, int indxPhi) {
+            // read the generation first, so a release while reading makes the cell stale
+            int generation = table.generation;
+            int index = indxPhi * table.lim.lam + indxLam;
+            data.readCell(index, index + table.lim.lam, corners);
+            this.table = table;
+            this.generation = generation;
+            this.lam = indxLam;
+            this.phi = indxPhi;
+        }
+    }
+}
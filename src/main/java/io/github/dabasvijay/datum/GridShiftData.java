@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.dabasvijay.datum;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.github.dabasvijay.Proj4jException;
+
+/**
+ * The shift values of a {@link Grid.ConversionTable},
+ * stored as (lam, phi) float pairs for each node in row-major order.
+ * <p>
+ * Values are either packed into a <tt>float[]</tt> on the heap,
+ * packed into bands of rows which are read from the grid file the first time they are needed,
+ * or read through a memory-mapped view of the grid file,
+ * which keeps them off the heap and lets the operating system share the pages
+ * between processes using the same grid.
+ */
+abstract class GridShiftData {
+
+    /**
+     * Creates shift data over an array holding the lam and phi shift of each node in turn.
+     */
+    static GridShiftData packed(float[] values) {
+        return new Packed(values);
+    }
+
+    /**
+     * Creates shift data over a buffer holding the lam and phi shift of each node in turn.
+     * The buffer is read with absolute gets only, so it may be shared between threads.
+     */
+    static GridShiftData mapped(FloatBuffer values) {
+        return new Mapped(values);
+    }
+
+    /**
+     * Creates shift data which reads bands of rows from a loader as they are needed.
+     *
+     * @param columns the number of nodes in each row
+     * @param rows the number of rows
+     * @param bandRows the number of rows to read at a time
+     * @param loader the source of the rows
+     */
+    static GridShiftData banded(int columns, int rows, int bandRows, RowLoader loader) {
+        return new Banded(columns, rows, bandRows, loader);
+    }
+
+    /**
+     * Reads rows of shift values for {@link #banded banded} shift data.
+     */
+    interface RowLoader {
+
+        /**
+         * Reads a band of rows, as the lam and phi shift of each node in turn.
+         *
+         * @param firstRow the first row to read
+         * @param rows the number of rows to read
+         */
+        float[] loadRows(int firstRow, int rows) throws IOException;
+
+        /**
+         * Called after a band of rows has been added to the shift data.
+         */
+        void rowsLoaded(GridShiftData data);
+    }
+
+    /**
+     * Gets the longitude shift of a node, in radians.
+     */
+    abstract float lam(int node);
+
+    /**
+     * Gets the latitude shift of a node, in radians.
+     */
+    abstract float phi(int node);
+
+    /**
+     * Reads the shifts at the corners of a cell, as the lam and phi shift of
+     * the lower left, lower right, upper left and upper right nodes in turn.
+     *
+     * @param lower the lower left node of the cell
+     * @param upper the upper left node of the cell
+     * @param corners receives the shifts
+     */
+    void readCell(int lower, int upper, float[] corners) {
+        corners[0] = lam(lower);
+        corners[1] = phi(lower);
+        corners[2] = lam(lower + 1);
+        corners[3] = phi(lower + 1);
+        corners[4] = lam(upper);
+        corners[5] = phi(upper);
+        corners[6] = lam(upper + 1);
+        corners[7] = phi(upper + 1);
+    }
+
+    /**
+     * Gets the number of nodes.
+     */
+    abstract int size();
+
+    /**
+     * Gets the approximate number of heap bytes used by the values.
+     */
+    abstract long heapBytes();
+
+    private static final class Packed extends GridShiftData {
+        private final float[] values;
+
+        Packed(float[] values) {
+            this.values = values;
+        }
+
+        @Override
+        float lam(int node) {
+            return values[2 * node];
+        }
+
+        @Override
+        float phi(int node) {
+            return values[2 * node + 1];
+        }
+
+        @Override
+        void readCell(int lower, int upper, float[] corners) {
+            System.arraycopy(values, 2 * lower, corners, 0, 4);
+            System.arraycopy(values, 2 * upper, corners, 4, 4);
+        }
+
+        @Override
+        int size() {
+            return values.length / 2;
+        }
+
+        @Override
+        long heapBytes() {
+            return 4L * values.length;
+        }
+    }
+
+    private static final class Mapped extends GridShiftData {
+        private final FloatBuffer values;
+
+        Mapped(FloatBuffer values) {
+            this.values = values;
+        }
+
+        @Override
+        float lam(int node) {
+            return values.get(2 * node);
+        }
+
+        @Override
+        float phi(int node) {
+            return values.get(2 * node + 1);
+        }
+
+        @Override
+        int size() {
+            return values.capacity() / 2;
+        }
+
+        @Override
+        long heapBytes() {
+            // the values are paged in by the operating system as needed
+            return 0;
+        }
+    }
+
+    private static final class Banded extends GridShiftData {
+        private final int columns;
+        private final int rows;
+        private final int bandRows;
+        private final int bandNodes;
+        private final AtomicReferenceArray<float[]> bands;
+        private final AtomicLong loadedBytes = new AtomicLong();
+        private final RowLoader loader;
+
+        Banded(int columns, int rows, int bandRows, RowLoader loader) {
+            this.columns = columns;
+            this.rows = rows;
+            this.bandRows = bandRows;
+            this.bandNodes = columns * bandRows;
+            this.bands = new AtomicReferenceArray<float[]>((rows + bandRows - 1) / bandRows);
+            this.loader = loader;
+        }
+
+        private float[] band(int band) {
+            float[] values = bands.get(band);
+            if (values != null) return values;
+
+            int firstRow = band * bandRows;
+            try {
+                values = loader.loadRows(firstRow, Math.min(bandRows, rows - firstRow));
+            } catch (IOException e) {
+                throw new Proj4jException("Unable to read grid rows from " + firstRow + ": " + e.getMessage());
+            }
+            // if another thread got there first, use its copy
+            if (!bands.compareAndSet(band, null, values)) return bands.get(band);
+            loadedBytes.addAndGet(4L * values.length);
+            loader.rowsLoaded(this);
+            return values;
+        }
+
+        @Override
+        float lam(int node) {
+            return band(node / bandNodes)[2 * (node % bandNodes)];
+        }
+
+        @Override
+        float phi(int node) {
+            return band(node / bandNodes)[2 * (node % bandNodes) + 1];
+        }
+
+        @Override
+        void readCell(int lower, int upper, float[] corners) {
+            // each pair of nodes is in the same row, so the same band
+            System.arraycopy(band(lower / bandNodes), 2 * (lower % bandNodes), corners, 0, 4);
+            System.arraycopy(band(upper / bandNodes), 2 * (upper % bandNodes), corners, 4, 4);
+        }
+
+        @Override
+        int size() {
+            return columns * rows;
+        }
+
+        @Override
+        long heapBytes() {
+            return loadedBytes.get();
+        }
+    }
+}
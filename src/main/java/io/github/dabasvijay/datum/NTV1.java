@@ -23,7 +23,6 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 
-import io.github.dabasvijay.util.FloatPolarCoordinate;
 import io.github.dabasvijay.util.IntPolarCoordinate;
 import io.github.dabasvijay.util.PolarCoordinate;
 
@@ -65,25 +64,45 @@ public final class NTV1 {
         return table;
     }
 
+    /**
+     * Reads the whole conversion matrix of a grid, from a definition positioned at the start of the file.
+     *
+     * @deprecated grids read their own tables, a band of rows at a time as shifts first need them,
+     * so tables no longer need loading; get grids with {@link Grid#fromNadGrids(String)}
+     */
+    @Deprecated
     public static void load(DataInputStream definition, Grid grid) throws IOException {
         definition.skip(176);
-        double[] row_buff = new double[grid.table.lim.lam * 2];
-        FloatPolarCoordinate[] tmp_cvs =
-                new FloatPolarCoordinate[grid.table.lim.lam * grid.table.lim.phi];
+        grid.table.data = GridShiftData.packed(readRows(definition, grid.table, grid.table.lim.phi));
+    }
+
+    /**
+     * Gets the position of a row of the conversion matrix in the grid file.
+     */
+    static long rowOffset(Grid.ConversionTable table, int row) {
+        return 176 + 16L * table.lim.lam * row;
+    }
 
-        for (int row = 0; row < grid.table.lim.phi; row++) {
-            byte[] byteBuff = new byte[8 * row_buff.length];
+    /**
+     * Reads rows of the conversion matrix, starting at the current position of the definition.
+     */
+    static float[] readRows(DataInputStream definition, Grid.ConversionTable table, int rows) throws IOException {
+        int lam = table.lim.lam;
+        double[] row_buff = new double[lam * 2];
+        byte[] byteBuff = new byte[8 * row_buff.length];
+        float[] values = new float[2 * lam * rows];
+
+        for (int row = 0; row < rows; row++) {
             definition.readFully(byteBuff);
             ByteBuffer.wrap(byteBuff).order(ByteOrder.BIG_ENDIAN).asDoubleBuffer().get(row_buff);
-            for (int i = 0; i < grid.table.lim.lam; i++) {
-                tmp_cvs[row * grid.table.lim.lam + grid.table.lim.lam - i - 1] =
-                        new FloatPolarCoordinate(
-                                (float) (row_buff[2 * i] * Math.PI / 180.0 / 3600.0),
-                                (float) (row_buff[2 * i + 1] * Math.PI / 180.0 / 3600.0));
+            for (int i = 0; i < lam; i++) {
+                // rows are stored from east to west, with the latitude shift first
+                int node = row * lam + lam - i - 1;
+                values[2 * node] = (float) (row_buff[2 * i + 1] * Math.PI / 180.0 / 3600.0);
+                values[2 * node + 1] = (float) (row_buff[2 * i] * Math.PI / 180.0 / 3600.0);
             }
         }
-        grid.table.cvs = tmp_cvs;
-
+        return values;
     }
 
     private static boolean containsAt(byte[] needle, byte[] haystack, int offset) {
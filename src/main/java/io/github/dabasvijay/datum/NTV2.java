@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.dabasvijay.datum;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import io.github.dabasvijay.util.IntPolarCoordinate;
+import io.github.dabasvijay.util.PolarCoordinate;
+
+/**
+ * Reads NTv2 (<tt>.gsb</tt>) grid shift files.
+ * <p>
+ * An NTv2 file has an overview header followed by a number of subfiles,
+ * each with its own header and shift records.
+ * Subfiles name a parent subfile which they refine, or <tt>NONE</tt> for top level grids.
+ * Each record holds the latitude and longitude shifts and their accuracies, in seconds of arc,
+ * with rows from south to north and each row stored from east to west.
+ */
+public final class NTV2 {
+
+    /**
+     * The size of the overview header, and of each subfile header
+     */
+    static final int HEADER_SIZE = 176;
+
+    private static final byte[] magic = "NUM_OREC".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] subfileMagic = "SUB_NAME".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] noParent = "NONE".getBytes(StandardCharsets.US_ASCII);
+
+    public static boolean testHeader(byte[] header) {
+        return containsAt(magic, header, 0);
+    }
+
+    /**
+     * Reads the overview header.
+     *
+     * @return whether the numbers in the file are big-endian
+     */
+    static boolean readHeader(DataInputStream definition, int[] subfileCount) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        definition.readFully(header);
+        if (!testHeader(header)) throw new Error("Not a NTv2 file");
+
+        // the record count of the overview header is 11, so its first byte says which way round the file is
+        boolean bigEndian = header[8] != 11;
+        subfileCount[0] = intFromBytes(header, 40, bigEndian);
+        if (subfileCount[0] < 1 || subfileCount[0] > 10000) {
+            throw new Error("NTv2 grid shift file has an invalid number of subfiles, corrupt? " + subfileCount[0]);
+        }
+        return bigEndian;
+    }
+
+    /**
+     * Reads the header of a subfile.
+     *
+     * @param parent receives the name of the parent subfile, or <tt>null</tt> for a top level grid
+     */
+    static Grid.ConversionTable readSubfileHeader(DataInputStream definition, boolean bigEndian, String[] parent)
+            throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        definition.readFully(header);
+        if (!containsAt(subfileMagic, header, 0)) throw new Error("NTv2 grid shift file has an invalid subfile header");
+
+        Grid.ConversionTable table = new Grid.ConversionTable();
+        table.id = stringFromBytes(header, 8);
+        parent[0] = containsAt(noParent, header, 24) ? null : stringFromBytes(header, 24);
+
+        // longitudes are positive to the west, and all values are in seconds of arc
+        table.ll = new PolarCoordinate(-doubleFromBytes(header, 120, bigEndian), doubleFromBytes(header, 72, bigEndian));
+        PolarCoordinate ur = new PolarCoordinate(-doubleFromBytes(header, 104, bigEndian), doubleFromBytes(header, 88, bigEndian));
+        table.del = new PolarCoordinate(doubleFromBytes(header, 152, bigEndian), doubleFromBytes(header, 136, bigEndian));
+        table.lim = new IntPolarCoordinate(
+                (int) (Math.abs(ur.lam - table.ll.lam) / table.del.lam + 0.5) + 1,
+                (int) (Math.abs(ur.phi - table.ll.phi) / table.del.phi + 0.5) + 1);
+
+        // Minimal validation to detect corrupt structure
+        int recordCount = intFromBytes(header, 168, bigEndian);
+        if (recordCount != table.lim.lam * table.lim.phi) {
+            throw new Error(String.format("NTv2 subfile %s has %d records, expected %d x %d, corrupt?",
+                    table.id, recordCount, table.lim.lam, table.lim.phi));
+        }
+
+        table.ll.lam *= Math.PI / 180.0 / 3600.0;
+        table.ll.phi *= Math.PI / 180.0 / 3600.0;
+        table.del.lam *= Math.PI / 180.0 / 3600.0;
+        table.del.phi *= Math.PI / 180.0 / 3600.0;
+        return table;
+    }
+
+    /**
+     * Gets the size of the shift records of a subfile in the grid file.
+     */
+    static long dataSize(Grid.ConversionTable table) {
+        return 16L * table.lim.lam * table.lim.phi;
+    }
+
+    /**
+     * Gets the position of a row of the conversion matrix, relative to the start of the records of its subfile.
+     */
+    static long rowOffset(Grid.ConversionTable table, int row) {
+        return 16L * table.lim.lam * row;
+    }
+
+    /**
+     * Reads rows of the conversion matrix, starting at the current position of the definition.
+     */
+    static float[] readRows(DataInputStream definition, Grid.ConversionTable table, int rows, boolean bigEndian)
+            throws IOException {
+        int lam = table.lim.lam;
+        float[] row_buff = new float[lam * 4];
+        byte[] byteBuff = new byte[4 * row_buff.length];
+        float[] values = new float[2 * lam * rows];
+        ByteOrder order = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+
+        for (int row = 0; row < rows; row++) {
+            definition.readFully(byteBuff);
+            ByteBuffer.wrap(byteBuff).order(order).asFloatBuffer().get(row_buff);
+            for (int i = 0; i < lam; i++) {
+                // rows are stored from east to west, with the latitude shift first, followed by the accuracies
+                int node = row * lam + lam - i - 1;
+                values[2 * node] = (float) (row_buff[4 * i + 1] * Math.PI / 180.0 / 3600.0);
+                values[2 * node + 1] = (float) (row_buff[4 * i] * Math.PI / 180.0 / 3600.0);
+            }
+        }
+        return values;
+    }
+
+    private static boolean containsAt(byte[] needle, byte[] haystack, int offset) {
+        if (needle == null || haystack == null || haystack.length < offset + needle.length) return false;
+
+        for (int i = 0; i < needle.length; i++) {
+            if (needle[i] != haystack[offset + i]) return false;
+        }
+
+        return true;
+    }
+
+    private static String stringFromBytes(byte[] b, int offset) {
+        return new String(b, offset, 8, StandardCharsets.US_ASCII).trim();
+    }
+
+    private static double doubleFromBytes(byte[] b, int offset, boolean bigEndian) {
+        return ByteBuffer.wrap(b, offset, 8).order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN).getDouble();
+    }
+
+    private static int intFromBytes(byte[] b, int offset, boolean bigEndian) {
+        return ByteBuffer.wrap(b, offset, 4).order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+}
@@ -79,6 +79,13 @@ public final class PrimeMeridian implements Serializable {
         return name;
     }
 
+    /**
+     * Gets the longitude of this meridian east of Greenwich, in radians.
+     */
+    public double getOffsetFromGreenwich() {
+        return offsetFromGreenwich;
+    }
+
     public void toGreenwich(ProjCoordinate coord) {
         coord.x += this.offsetFromGreenwich;
     }
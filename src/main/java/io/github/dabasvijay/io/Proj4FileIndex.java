@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.dabasvijay.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory index of a PROJ.4 CRS definition file
+ * (such as <tt>proj4/nad/epsg</tt>), mapping each CRS name to the
+ * location of its entry in the file.
+ * <p>
+ * Each file is read from the classpath once, the first time it is needed,
+ * so that later lookups go straight to the requested entry
+ * instead of scanning the file from the start.
+ */
+final class Proj4FileIndex {
+
+    private static final Map<String, Proj4FileIndex> indexes = new ConcurrentHashMap<String, Proj4FileIndex>();
+
+    private final String content;
+    // offset of the '<' starting each entry, in file order
+    private final int[] starts;
+    private final Map<String, Integer> entries;
+
+    private Proj4FileIndex(String content) {
+        this.content = content;
+        Map<String, Integer> entries = new HashMap<String, Integer>();
+        int[] starts = new int[256];
+        int count = 0;
+
+        int i = 0;
+        int n = content.length();
+        while (i < n) {
+            char c = content.charAt(i);
+            if (c == '#') {
+                // skip comment
+                while (i < n && content.charAt(i) != '\n') i++;
+            } else if (c == '<' && i + 1 < n && content.charAt(i + 1) == '>') {
+                // end of entry
+                i += 2;
+            } else if (c == '<') {
+                int close = content.indexOf('>', i);
+                if (close < 0) break;
+                String name = content.substring(i + 1, close).trim();
+                if (count == starts.length) {
+                    int[] grown = new int[count * 2];
+                    System.arraycopy(starts, 0, grown, 0, count);
+                    starts = grown;
+                }
+                // the first definition of a name wins, as when scanning the file
+                if (!entries.containsKey(name)) {
+                    entries.put(name, count);
+                }
+                starts[count++] = i;
+                i = close + 1;
+            } else {
+                i++;
+            }
+        }
+
+        this.starts = new int[count];
+        System.arraycopy(starts, 0, this.starts, 0, count);
+        this.entries = entries;
+    }
+
+    /**
+     * Gets the index of a CRS definition file on the classpath,
+     * reading and indexing the file if this has not been done already.
+     *
+     * @param filename the classpath location of the file
+     * @return the index of the file
+     * @throws IOException if the file cannot be read
+     */
+    static Proj4FileIndex forResource(String filename) throws IOException {
+        Proj4FileIndex index = indexes.get(filename);
+        if (index != null) return index;
+
+        synchronized (indexes) {
+            index = indexes.get(filename);
+            if (index == null) {
+                index = new Proj4FileIndex(readResource(filename));
+                indexes.put(filename, index);
+            }
+        }
+        return index;
+    }
+
+    private static String readResource(String filename) throws IOException {
+        InputStream inStr = Proj4FileIndex.class.getClassLoader().getResourceAsStream(filename);
+        if (inStr == null) {
+            throw new IllegalStateException("Unable to access CRS file: " + filename);
+        }
+        try (Reader reader = new InputStreamReader(inStr)) {
+            StringBuilder sb = new StringBuilder();
+            char[] buf = new char[8192];
+            int len;
+            while ((len = reader.read(buf)) > 0) {
+                sb.append(buf, 0, len);
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Opens a reader over the entry for a given CRS name,
+     * starting at its opening <tt>&lt;name&gt;</tt>.
+     *
+     * @param name the name of the CRS
+     * @return a reader over the entry, or <tt>null</tt> if the file has no such entry
+     */
+    Reader openEntry(String name) {
+        Integer entry = entries.get(name);
+        if (entry == null) return null;
+        return openEntry(entry);
+    }
+
+    /**
+     * Opens a reader over the n'th entry of the file.
+     */
+    Reader openEntry(int entry) {
+        int end = entry + 1 < starts.length ? starts[entry + 1] : content.length();
+        return new StringReader(content.substring(starts[entry], end));
+    }
+
+    /**
+     * Gets the number of entries in the file.
+     */
+    int size() {
+        return starts.length;
+    }
+}
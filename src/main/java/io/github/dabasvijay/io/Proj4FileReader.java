@@ -19,15 +19,20 @@ import io.github.dabasvijay.util.Pair;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StreamTokenizer;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Proj4FileReader {
 
+    // normalized parameter key -> CRS name, per authority file
+    private static final Map<String, Map<String, String>> parameterIndexes = new ConcurrentHashMap<String, Map<String, String>>();
+
     public Proj4FileReader() {
         super();
     }
@@ -39,23 +44,21 @@ public class Proj4FileReader {
         // TODO: parse CSes line-at-a-time (this allows preserving CS param string for later access)
 
         String filename = "proj4/nad/" + authorityCode.toLowerCase();
-        InputStream inStr = Proj4FileReader.class.getClassLoader().getResourceAsStream(filename);
-        if (inStr == null) {
-            throw new IllegalStateException("Unable to access CRS file: " + filename);
+        Reader entry = Proj4FileIndex.forResource(filename).openEntry(name);
+        if (entry == null) {
+            return null;
         }
-        BufferedReader reader = new BufferedReader(
-                new InputStreamReader(inStr));
+        BufferedReader reader = new BufferedReader(entry);
         String[] args;
         try {
             args = readFile(reader, name);
         } finally {
-            if (reader != null)
-                reader.close();
+            reader.close();
         }
         return args;
     }
 
-    private StreamTokenizer createTokenizer(BufferedReader reader) {
+    private static StreamTokenizer createTokenizer(BufferedReader reader) {
         StreamTokenizer t = new StreamTokenizer(reader);
         t.commentChar('#');
         t.ordinaryChars('0', '9');
@@ -124,27 +127,79 @@ public class Proj4FileReader {
         return null;
     }
 
+    /**
+     * Finds the EPSG code of the coordinate system
+     * defined by the given PROJ.4 parameters.
+     * The order of the parameters does not matter.
+     *
+     * @param params the PROJ.4 projection parameters
+     * @return the EPSG code, or <tt>null</tt> if no coordinate system has these parameters
+     * @throws IOException if the EPSG file cannot be read
+     */
     public String readEpsgCodeFromFile(String[] params) throws IOException {
-        InputStream inStr = Proj4FileReader.class.getClassLoader().getResourceAsStream("proj4/nad/epsg");
+        return readNameFromFile("epsg", params);
+    }
 
-        if (inStr == null) {
-            throw new IllegalStateException("Unable to access CRS file: EPSG");
-        }
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inStr));
+    /**
+     * Finds the name of the coordinate system in an authority file
+     * defined by the given PROJ.4 parameters.
+     * The order of the parameters does not matter.
+     * If several coordinate systems have the same parameters,
+     * the first one in the file is returned.
+     *
+     * @param authorityCode the authority, eg. <tt>EPSG</tt>
+     * @param params        the PROJ.4 projection parameters
+     * @return the name of the coordinate system, or <tt>null</tt> if none has these parameters
+     * @throws IOException if the authority file cannot be read
+     */
+    public String readNameFromFile(String authorityCode, String[] params) throws IOException {
+        return parameterIndex("proj4/nad/" + authorityCode.toLowerCase()).get(parameterKey(params));
+    }
 
-        StreamTokenizer t = createTokenizer(reader);
+    private static Map<String, String> parameterIndex(String filename) throws IOException {
+        Map<String, String> index = parameterIndexes.get(filename);
+        if (index != null) return index;
 
-        t.nextToken();
-        while (t.ttype == '<') {
-            Pair<String, List> pair = parseTokenizer(t);
-            String crsName = pair.fst();
-            List v = pair.snd();
+        synchronized (parameterIndexes) {
+            index = parameterIndexes.get(filename);
+            if (index == null) {
+                index = buildParameterIndex(Proj4FileIndex.forResource(filename));
+                parameterIndexes.put(filename, index);
+            }
+        }
+        return index;
+    }
 
-            String[] paramsParsed = (String[]) v.toArray(new String[0]);
+    private static Map<String, String> buildParameterIndex(Proj4FileIndex file) throws IOException {
+        Map<String, String> index = new HashMap<String, String>();
+        for (int i = 0; i < file.size(); i++) {
+            try (BufferedReader reader = new BufferedReader(file.openEntry(i))) {
+                StreamTokenizer t = createTokenizer(reader);
+                t.nextToken();
+                Pair<String, List> pair = parseTokenizer(t);
+                String key = parameterKey((String[]) pair.snd().toArray(new String[0]));
+                if (!index.containsKey(key)) {
+                    index.put(key, pair.fst());
+                }
+            }
+        }
+        return index;
+    }
 
-            if(Arrays.equals(params, paramsParsed)) return crsName;
+    /**
+     * Normalizes a list of PROJ.4 parameters into a key
+     * which does not depend on their order or on stray whitespace.
+     */
+    private static String parameterKey(String[] params) {
+        List<String> list = new ArrayList<String>(params.length);
+        for (String param : params) {
+            if (param == null) continue;
+            param = param.trim();
+            if (param.isEmpty()) continue;
+            list.add(param.startsWith("+") ? param : "+" + param);
         }
-        return null;
+        Collections.sort(list);
+        return String.join(" ", list);
     }
 
     private static Pair<String, List> parseTokenizer(StreamTokenizer t) throws IOException {
@@ -83,6 +83,36 @@ public class AlbersProjection extends Projection {
 		return out;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		double c = this.c, n = this.n, dd = this.dd;
+		// find the radius of each point's parallel, then place it on the cone
+		if (!spherical) {
+			double e = this.e, one_es = this.one_es;
+			for (int i = off; i < end; i++) {
+				double rho = c - n * ProjectionMath.qsfn(Math.sin(ys[i]), e, one_es);
+				if (rho < 0.)
+					throw new ProjectionException("F");
+				ys[i] = dd * Math.sqrt(rho);
+			}
+		} else {
+			double n2 = this.n2;
+			for (int i = off; i < end; i++) {
+				double rho = c - n2 * Math.sin(ys[i]);
+				if (rho < 0.)
+					throw new ProjectionException("F");
+				ys[i] = dd * Math.sqrt(rho);
+			}
+		}
+		double rho0 = this.rho0;
+		for (int i = off; i < end; i++) {
+			double rho = ys[i];
+			double lplam = xs[i] * n;
+			xs[i] = rho * Math.sin(lplam);
+			ys[i] = rho0 - rho * Math.cos(lplam);
+		}
+	}
+
 	public ProjCoordinate projectInverse(double xyx, double xyy, ProjCoordinate out) {
 		double rho;
 		if ((rho = ProjectionMath.distance(xyx, xyy = rho0 - xyy)) != 0) {
@@ -100,7 +130,7 @@ public class AlbersProjection extends Projection {
 						throw new ProjectionException("I");
 				} else
 					lpphi = lpphi < 0. ? -ProjectionMath.HALFPI : ProjectionMath.HALFPI;
-			} else if (Math.abs(out.y = (c - lpphi * lpphi) / n2) <= 1.)
+			} else if (Math.abs(lpphi = (c - lpphi * lpphi) / n2) <= 1.)
 				lpphi = Math.asin(lpphi);
 			else
 				lpphi = lpphi < 0. ? -ProjectionMath.HALFPI : ProjectionMath.HALFPI;
@@ -114,6 +144,59 @@ public class AlbersProjection extends Projection {
 		return out;
 	}
 
+	protected void projectInverseBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		double c = this.c, n = this.n, dd = this.dd, rho0 = this.rho0;
+		// find the longitude and the radius of each point's parallel, leaving 0 for the apex
+		for (int i = off; i < end; i++) {
+			double xyx = xs[i];
+			double xyy = rho0 - ys[i];
+			double rho = ProjectionMath.distance(xyx, xyy);
+			if (rho != 0) {
+				if (n < 0.) {
+					rho = -rho;
+					xyx = -xyx;
+					xyy = -xyy;
+				}
+				xs[i] = Math.atan2(xyx, xyy) / n;
+			} else
+				xs[i] = 0.;
+			ys[i] = rho;
+		}
+		// then the latitude of the parallel
+		double pole = n > 0. ? ProjectionMath.HALFPI : - ProjectionMath.HALFPI;
+		if (!spherical) {
+			double e = this.e, one_es = this.one_es, ec = this.ec;
+			for (int i = off; i < end; i++) {
+				double rho = ys[i];
+				if (rho == 0) {
+					ys[i] = pole;
+					continue;
+				}
+				double lpphi = rho / dd;
+				lpphi = (c - lpphi * lpphi) / n;
+				if (Math.abs(ec - Math.abs(lpphi)) > TOL7) {
+					if ((lpphi = phi1_(lpphi, e, one_es)) == Double.MAX_VALUE)
+						throw new ProjectionException("I");
+				} else
+					lpphi = lpphi < 0. ? -ProjectionMath.HALFPI : ProjectionMath.HALFPI;
+				ys[i] = lpphi;
+			}
+		} else {
+			double n2 = this.n2;
+			for (int i = off; i < end; i++) {
+				double rho = ys[i];
+				if (rho == 0) {
+					ys[i] = pole;
+					continue;
+				}
+				double lpphi = rho / dd;
+				lpphi = (c - lpphi * lpphi) / n2;
+				ys[i] = Math.abs(lpphi) <= 1. ? Math.asin(lpphi) : lpphi < 0. ? -ProjectionMath.HALFPI : ProjectionMath.HALFPI;
+			}
+		}
+	}
+
 	public void initialize() {
 		super.initialize();
 		double cosphi, sinphi;
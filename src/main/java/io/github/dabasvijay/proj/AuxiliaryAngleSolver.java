@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.dabasvijay.proj;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.github.dabasvijay.util.ProjectionMath;
+
+/**
+ * Solves the equations for the auxiliary angle of the pseudocylindrical projections
+ * by Newton's method, for a block of points at a time.
+ * <p>
+ * Each pass takes one step for every point still iterating, and retires the points which have converged,
+ * so the steps of different points are independent and a block costs no more passes than its slowest point.
+ * Every point takes exactly the steps the per-point loops of the projections take,
+ * so the results are the same.
+ * Points which don't converge are reported in {@link #converged} rather than throwing,
+ * leaving each projection to handle them as it does for a single point.
+ * <p>
+ * {@link #seed(int, double, double)} gives a starting value close enough for the iteration to converge
+ * in a step or two, from a table of solutions for each equation,
+ * built when it is first used and shared by all projections solving the equation.
+ * <p>
+ * A solver holds the scratch arrays for one block, so it belongs to one batch.
+ */
+final class AuxiliaryAngleSolver {
+
+    /**
+     * The number of points in a block
+     */
+    static final int BLOCK_SIZE = 256;
+
+    /**
+     * <i>&theta; + sin &theta; = k</i>, as in the Mollweide and Eckert VI projections
+     */
+    static final int THETA_PLUS_SIN = 0;
+
+    /**
+     * <i>&theta; + sin &theta; (cos &theta; + 2) = k</i>, as in the Eckert IV projection
+     */
+    static final int ECKERT4 = 1;
+
+    /**
+     * <i>sin(&theta;/2) + sin &theta; = k</i>, as in the McBryde-Thomas Flat-Polar Quartic projection
+     */
+    static final int HALF_SIN_PLUS_SIN = 2;
+
+    /**
+     * <i>&theta; + sin &theta; (cos &theta; - 1) = k</i>, as in the Putnins P2 projection
+     */
+    static final int PUTNINS_P2 = 3;
+
+    /**
+     * <i>C1 sin(&theta;/C2) + sin &theta; = k</i>, as in the McBryde-Thomas Flat-Polar Sine (No. 2) projection
+     */
+    static final int FLAT_POLAR_SINE2 = 4;
+
+    // the largest solution of each equation, where the left-hand side stops increasing
+    private static final double[] THETA_MAX = {
+            Math.PI, ProjectionMath.HALFPI, ProjectionMath.HALFPI, Math.PI / 3, ProjectionMath.HALFPI
+    };
+
+    // the power of sqrt(kmax - k) which the distance of the solution from the largest one is proportional to,
+    // near the end of the range
+    private static final double[] END_POWER = {2. / 3., 1., 2., 1., 2.};
+
+    // the number of intervals in each table of solutions
+    private static final int TABLE_SIZE = 256;
+
+    private static final AtomicReferenceArray<double[]> tables = new AtomicReferenceArray<>(THETA_MAX.length);
+
+    /**
+     * The starting value of &theta; for each point of the block, replaced by the solution
+     */
+    final double[] theta = new double[BLOCK_SIZE];
+
+    /**
+     * The right-hand side of the equation for each point of the block
+     */
+    final double[] k = new double[BLOCK_SIZE];
+
+    /**
+     * Whether each point of the block converged
+     */
+    final boolean[] converged = new boolean[BLOCK_SIZE];
+
+    // the indices of the points still iterating
+    private final int[] lanes = new int[BLOCK_SIZE];
+
+    private final int equation;
+    private final int maxIter;
+    private final double tolerance;
+
+    /**
+     * Creates a solver.
+     *
+     * @param equation  the equation to solve
+     * @param maxIter   the most steps to take for a point
+     * @param tolerance the size of step at which a point has converged
+     */
+    AuxiliaryAngleSolver(int equation, int maxIter, double tolerance) {
+        this.equation = equation;
+        this.maxIter = maxIter;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Solves the equation for the first points of the block.
+     *
+     * @param len the number of points, at most {@link #BLOCK_SIZE}
+     * @return the number of points which did not converge
+     */
+    int solve(int len) {
+        double[] theta = this.theta, k = this.k;
+        int[] lanes = this.lanes;
+        double tolerance = this.tolerance;
+        for (int j = 0; j < len; j++) {
+            lanes[j] = j;
+            converged[j] = false;
+        }
+        int active = len;
+        for (int iter = maxIter; iter > 0 && active > 0; iter--) {
+            int still = 0;
+            switch (equation) {
+            case THETA_PLUS_SIN:
+                for (int a = 0; a < active; a++) {
+                    int j = lanes[a];
+                    double t = theta[j];
+                    double v = (t + Math.sin(t) - k[j]) / (1. + Math.cos(t));
+                    theta[j] = t - v;
+                    if (Math.abs(v) < tolerance)
+                        converged[j] = true;
+                    else
+                        lanes[still++] = j;
+                }
+                break;
+            case ECKERT4:
+                for (int a = 0; a < active; a++) {
+                    int j = lanes[a];
+                    double t = theta[j];
+                    double c = Math.cos(t), s = Math.sin(t);
+                    double v = (t + s * (c + 2.) - k[j]) / (1. + c * (c + 2.) - s * s);
+                    theta[j] = t - v;
+                    if (Math.abs(v) < tolerance)
+                        converged[j] = true;
+                    else
+                        lanes[still++] = j;
+                }
+                break;
+            case HALF_SIN_PLUS_SIN:
+                for (int a = 0; a < active; a++) {
+                    int j = lanes[a];
+                    double t = theta[j];
+                    double v = (Math.sin(.5 * t) + Math.sin(t) - k[j]) / (.5 * Math.cos(.5 * t) + Math.cos(t));
+                    theta[j] = t - v;
+                    if (Math.abs(v) < tolerance)
+                        converged[j] = true;
+                    else
+                        lanes[still++] = j;
+                }
+                break;
+            case PUTNINS_P2:
+                for (int a = 0; a < active; a++) {
+                    int j = lanes[a];
+                    double t = theta[j];
+                    double c = Math.cos(t), s = Math.sin(t);
+                    double v = (t + s * (c - 1.) - k[j]) / (1. + c * (c - 1.) - s * s);
+                    theta[j] = t - v;
+                    if (Math.abs(v) < tolerance)
+                        converged[j] = true;
+                    else
+                        lanes[still++] = j;
+                }
+                break;
+            case FLAT_POLAR_SINE2:
+                for (int a = 0; a < active; a++) {
+                    int j = lanes[a];
+                    double t = theta[j];
+                    double u = t / McBrydeThomasFlatPolarSine2Projection.C2;
+                    double v = (McBrydeThomasFlatPolarSine2Projection.C1 * Math.sin(u) + Math.sin(t) - k[j]) /
+                            (McBrydeThomasFlatPolarSine2Projection.C1_2 * Math.cos(u) + Math.cos(t));
+                    theta[j] = t - v;
+                    if (Math.abs(v) < tolerance)
+                        converged[j] = true;
+                    else
+                        lanes[still++] = j;
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown equation " + equation);
+            }
+            active = still;
+        }
+        return active;
+    }
+
+    /**
+     * Gets a value of &theta; to start solving an equation from.
+     * <p>
+     * The value is interpolated from a table of solutions indexed by <i>sqrt(1 - |k| / k<sub>max</sub>)</i>,
+     * which spaces the solutions closely near the end of the range, where &theta; changes fastest.
+     * In the interval next to the end of the range &theta; varies as a power of the index, so is found from that.
+     * At the end of the range itself the iteration can't start from the solution, so the guess is used.
+     *
+     * @param equation the equation to solve
+     * @param k        the right-hand side of the equation
+     * @param guess    the value to start from where the table doesn't help
+     * @return the value to start from
+     */
+    static double seed(int equation, double k, double guess) {
+        double[] table = tables.get(equation);
+        if (table == null) {
+            // threads racing to build a table build the same one
+            table = buildTable(equation);
+            tables.set(equation, table);
+        }
+        double u = Math.sqrt(1. - Math.abs(k) / table[2 * TABLE_SIZE + 2]) * TABLE_SIZE;
+        int i = (int) u;
+        if (i < 1) {
+            if (!(u > 0.))
+                return guess;
+            double theta = table[0] - (table[0] - table[2]) * Math.pow(u, END_POWER[equation]);
+            return k < 0. ? -theta : theta;
+        }
+        if (i >= TABLE_SIZE)
+            i = TABLE_SIZE - 1;
+        double t = u - i;
+        // cubic Hermite interpolation, from the solutions and their slopes at either end of the interval
+        double t2 = t * t, t3 = t2 * t;
+        double theta = (2. * t3 - 3. * t2 + 1.) * table[2 * i] + (t3 - 2. * t2 + t) * table[2 * i + 1]
+                + (3. * t2 - 2. * t3) * table[2 * i + 2] + (t3 - t2) * table[2 * i + 3];
+        return k < 0. ? -theta : theta;
+    }
+
+    // tabulates the solution and its slope for TABLE_SIZE + 1 evenly spaced values of sqrt(1 - k / kmax),
+    // followed by kmax
+    private static double[] buildTable(int equation) {
+        double thetaMax = THETA_MAX[equation];
+        double kMax = function(equation, thetaMax);
+        double[] table = new double[2 * TABLE_SIZE + 3];
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            double u = (double) i / TABLE_SIZE;
+            double k = kMax * (1. - u * u);
+            // the function increases from 0 to kMax over [0, thetaMax]
+            double lo = 0., hi = thetaMax;
+            for (int n = 0; n < 64; n++) {
+                double mid = 0.5 * (lo + hi);
+                if (function(equation, mid) < k)
+                    lo = mid;
+                else
+                    hi = mid;
+            }
+            double theta = 0.5 * (lo + hi);
+            table[2 * i] = theta;
+            // d(theta)/du = (dk/du) / f'(theta), over an interval; it isn't used at u = 0, where f' may vanish
+            table[2 * i + 1] = i == 0 ? 0. : -2. * kMax * u / derivative(equation, theta) / TABLE_SIZE;
+        }
+        table[2 * TABLE_SIZE + 2] = kMax;
+        return table;
+    }
+
+    // the left-hand side of an equation
+    private static double function(int equation, double t) {
+        switch (equation) {
+        case THETA_PLUS_SIN:
+            return t + Math.sin(t);
+        case ECKERT4:
+            return t + Math.sin(t) * (Math.cos(t) + 2.);
+        case HALF_SIN_PLUS_SIN:
+            return Math.sin(.5 * t) + Math.sin(t);
+        case PUTNINS_P2:
+            return t + Math.sin(t) * (Math.cos(t) - 1.);
+        case FLAT_POLAR_SINE2:
+            return McBrydeThomasFlatPolarSine2Projection.C1 * Math.sin(t / McBrydeThomasFlatPolarSine2Projection.C2)
+                    + Math.sin(t);
+        default:
+            throw new IllegalStateException("Unknown equation " + equation);
+        }
+    }
+
+    // the derivative of the left-hand side of an equation
+    private static double derivative(int equation, double t) {
+        double c = Math.cos(t);
+        switch (equation) {
+        case THETA_PLUS_SIN:
+            return 1. + c;
+        case ECKERT4:
+            return 2. * c * (c + 1.);
+        case HALF_SIN_PLUS_SIN:
+            return .5 * Math.cos(.5 * t) + c;
+        case PUTNINS_P2:
+            return c * (2. * c - 1.);
+        case FLAT_POLAR_SINE2:
+            return McBrydeThomasFlatPolarSine2Projection.C1 / McBrydeThomasFlatPolarSine2Projection.C2
+                    * Math.cos(t / McBrydeThomasFlatPolarSine2Projection.C2) + c;
+        default:
+            throw new IllegalStateException("Unknown equation " + equation);
+        }
+    }
+}
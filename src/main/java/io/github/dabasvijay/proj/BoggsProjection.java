@@ -41,6 +41,7 @@ public class BoggsProjection extends PseudoCylindricalProjection {
 			out.x = 0.;
 		else {
 			c = Math.sin(theta) * Math.PI;
+			theta = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.THETA_PLUS_SIN, c, theta);
 			for (i = NITER; i > 0; --i) {
 				theta -= th1 = (theta + Math.sin(theta) - c) /
 					(1. + Math.cos(theta));
@@ -53,6 +54,34 @@ public class BoggsProjection extends PseudoCylindricalProjection {
 		return out;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		AuxiliaryAngleSolver solver = new AuxiliaryAngleSolver(AuxiliaryAngleSolver.THETA_PLUS_SIN, NITER, EPS);
+		double[] theta = solver.theta, c = solver.k;
+		for (int start = off, end = off + len; start < end; start += AuxiliaryAngleSolver.BLOCK_SIZE) {
+			int count = Math.min(AuxiliaryAngleSolver.BLOCK_SIZE, end - start);
+			for (int j = 0; j < count; j++) {
+				double lpphi = ys[start + j];
+				// the poles aren't iterated, so give them an equation solved by the first step
+				boolean pole = Math.abs(Math.abs(lpphi) - ProjectionMath.HALFPI) < EPS;
+				c[j] = pole ? 0. : Math.sin(lpphi) * Math.PI;
+				theta[j] = pole ? 0. : AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.THETA_PLUS_SIN, c[j], lpphi);
+			}
+			solver.solve(count);
+			for (int j = 0; j < count; j++) {
+				int i = start + j;
+				double lpphi = ys[i], th;
+				if (Math.abs(Math.abs(lpphi) - ProjectionMath.HALFPI) < EPS) {
+					th = lpphi;
+					xs[i] = 0.;
+				} else {
+					th = theta[j] * 0.5;
+					xs[i] = FXC * xs[i] / (1. / Math.cos(lpphi) + FXC2 / Math.cos(th));
+				}
+				ys[i] = FYC * (lpphi + FYC2 * Math.sin(th));
+			}
+		}
+	}
+
 	/**
 	 * Returns true if this projection is equal area
 	 */
@@ -63,6 +63,21 @@ public class CylindricalEqualAreaProjection extends Projection {
 		return xy;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		double k = scaleFactor;
+		for (int i = off; i < end; i++)
+			xs[i] = k * xs[i];
+		if (spherical) {
+			for (int i = off; i < end; i++)
+				ys[i] = Math.sin(ys[i]) / k;
+		} else {
+			double e = this.e, one_es = this.one_es;
+			for (int i = off; i < end; i++)
+				ys[i] = .5 * ProjectionMath.qsfn(Math.sin(ys[i]), e, one_es) / k;
+		}
+	}
+
 	public ProjCoordinate projectInverse(double x, double y, ProjCoordinate lp) {
 		if (spherical) {
 			double t;
@@ -81,6 +96,20 @@ public class CylindricalEqualAreaProjection extends Projection {
 		return lp;
 	}
 
+	protected void projectInverseBatch(double[] xs, double[] ys, int off, int len) {
+		if (spherical) {
+			// points off the projection throw, so go a point at a time
+			super.projectInverseBatch(xs, ys, off, len);
+			return;
+		}
+		int end = off + len;
+		double k = scaleFactor;
+		for (int i = off; i < end; i++)
+			xs[i] = xs[i] / k;
+		for (int i = off; i < end; i++)
+			ys[i] = ProjectionMath.authlat(Math.asin( 2. * ys[i] * k / qp), apa);
+	}
+
 	public boolean hasInverse() {
 		return true;
 	}
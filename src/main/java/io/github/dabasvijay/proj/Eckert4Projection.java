@@ -39,6 +39,7 @@ public class Eckert4Projection extends Projection {
 		p = C_p * Math.sin(lpphi);
 		V = lpphi * lpphi;
 		lpphi *= 0.895168 + V * ( 0.0218849 + V * 0.00826809 );
+		lpphi = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.ECKERT4, p, lpphi);
 		for (i = NITER; i > 0; --i) {
 			c = Math.cos(lpphi);
 			s = Math.sin(lpphi);
@@ -57,6 +58,34 @@ public class Eckert4Projection extends Projection {
 		return out;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		AuxiliaryAngleSolver solver = new AuxiliaryAngleSolver(AuxiliaryAngleSolver.ECKERT4, NITER, EPS);
+		double[] theta = solver.theta, k = solver.k;
+		boolean[] converged = solver.converged;
+		for (int start = off, end = off + len; start < end; start += AuxiliaryAngleSolver.BLOCK_SIZE) {
+			int count = Math.min(AuxiliaryAngleSolver.BLOCK_SIZE, end - start);
+			for (int j = 0; j < count; j++) {
+				double lpphi = ys[start + j];
+				double V = lpphi * lpphi;
+				k[j] = C_p * Math.sin(lpphi);
+				theta[j] = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.ECKERT4, k[j],
+						lpphi * (0.895168 + V * ( 0.0218849 + V * 0.00826809 )));
+			}
+			solver.solve(count);
+			for (int j = 0; j < count; j++) {
+				int i = start + j;
+				double lpphi = theta[j];
+				if (converged[j]) {
+					xs[i] = C_x * xs[i] * (1. + Math.cos(lpphi));
+					ys[i] = C_y * Math.sin(lpphi);
+				} else {
+					xs[i] = C_x * xs[i];
+					ys[i] = lpphi < 0. ? -C_y : C_y;
+				}
+			}
+		}
+	}
+
 	public ProjCoordinate projectInverse(double xyx, double xyy, ProjCoordinate out) {
 		double c;
 
@@ -46,6 +46,7 @@ public class Eckert6Projection extends PseudoCylindricalProjection {
         int i;
         double k, V;
         k = n * Math.sin(phi);
+        phi = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.THETA_PLUS_SIN, k, phi);
         for (i = MAX_ITER; i > 0;) {
             phi -= V = (phi + Math.sin(phi) - k) / (1 + Math.cos(phi));
             if (Math.abs(V) < LOOP_TOL) {
@@ -62,6 +63,28 @@ public class Eckert6Projection extends PseudoCylindricalProjection {
         return xy;
     }
 
+    protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+        AuxiliaryAngleSolver solver = new AuxiliaryAngleSolver(AuxiliaryAngleSolver.THETA_PLUS_SIN, MAX_ITER, LOOP_TOL);
+        double[] theta = solver.theta, k = solver.k;
+        for (int start = off, end = off + len; start < end; start += AuxiliaryAngleSolver.BLOCK_SIZE) {
+            int count = Math.min(AuxiliaryAngleSolver.BLOCK_SIZE, end - start);
+            for (int j = 0; j < count; j++) {
+                double phi = ys[start + j];
+                k[j] = n * Math.sin(phi);
+                theta[j] = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.THETA_PLUS_SIN, k[j], phi);
+            }
+            if (solver.solve(count) != 0) {
+                throw new ProjectionException("F_ERROR");
+            }
+            for (int j = 0; j < count; j++) {
+                int i = start + j;
+                double phi = theta[j];
+                xs[i] = C_x * xs[i] * (1 + Math.cos(phi));
+                ys[i] = C_y * phi;
+            }
+        }
+    }
+
     public ProjCoordinate projectInverse(double x, double y, ProjCoordinate lp) {
         y /= C_y;
         lp.y = Math.asin((y + Math.sin(y)) / n);
@@ -165,6 +165,60 @@ public class EquidistantAzimuthalProjection extends AzimuthalProjection {
 		return xy;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		if (spherical) {
+			switch (mode) {
+			case EQUATOR:
+			case OBLIQUE:
+				boolean oblique = mode == OBLIQUE;
+				double sinphi0 = this.sinphi0, cosphi0 = this.cosphi0;
+				for (int i = off; i < end; i++) {
+					double lam = xs[i], phi = ys[i];
+					double sinphi = Math.sin(phi), cosphi = Math.cos(phi), coslam = Math.cos(lam);
+					double y = oblique ? sinphi0 * sinphi + cosphi0 * cosphi * coslam : cosphi * coslam;
+					if (Math.abs(Math.abs(y) - 1.) < TOL) {
+						if (y < 0.)
+							throw new ProjectionException();
+						xs[i] = ys[i] = 0.;
+						continue;
+					}
+					y = Math.acos(y);
+					y /= Math.sin(y);
+					xs[i] = y * cosphi * Math.sin(lam);
+					ys[i] = y * (oblique ? cosphi0 * sinphi - sinphi0 * cosphi * coslam : sinphi);
+				}
+				break;
+			case NORTH_POLE:
+			case SOUTH_POLE:
+				// the north polar aspect is the south one turned around
+				double sign = mode == NORTH_POLE ? -1. : 1.;
+				for (int i = off; i < end; i++) {
+					double lam = xs[i], phi = sign * ys[i];
+					if (Math.abs(phi - ProjectionMath.HALFPI) < EPS10)
+						throw new ProjectionException();
+					double y = ProjectionMath.HALFPI + phi;
+					xs[i] = y * Math.sin(lam);
+					ys[i] = y * (sign * Math.cos(lam));
+				}
+				break;
+			}
+		} else if (mode == NORTH_POLE || mode == SOUTH_POLE) {
+			double Mp = this.Mp;
+			double[] en = this.en;
+			double sign = mode == NORTH_POLE ? -1. : 1.;
+			for (int i = off; i < end; i++) {
+				double lam = xs[i], phi = ys[i];
+				double rho = Math.abs(Mp - ProjectionMath.mlfn(phi, Math.sin(phi), Math.cos(phi), en));
+				xs[i] = rho * Math.sin(lam);
+				ys[i] = rho * (sign * Math.cos(lam));
+			}
+		} else {
+			// the geodesic series dwarfs the cost of the aspect switch
+			super.projectBatch(xs, ys, off, len);
+		}
+	}
+
 	public ProjCoordinate projectInverse(double x, double y, ProjCoordinate lp) {
 		if (spherical) {
 			double cosc, c_rh, sinc;
@@ -233,6 +287,83 @@ public class EquidistantAzimuthalProjection extends AzimuthalProjection {
 		return lp;
 	}
 
+	protected void projectInverseBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		double phi0 = projectionLatitude;
+		if (spherical) {
+			switch (mode) {
+			case EQUATOR:
+			case OBLIQUE:
+				boolean oblique = mode == OBLIQUE;
+				double sinphi0 = this.sinphi0, cosphi0 = this.cosphi0;
+				for (int i = off; i < end; i++) {
+					double x = xs[i], y = ys[i];
+					double c_rh = ProjectionMath.distance(x, y);
+					if (c_rh > Math.PI) {
+						if (c_rh - EPS10 > Math.PI)
+							throw new ProjectionException();
+						c_rh = Math.PI;
+					} else if (c_rh < EPS10) {
+						xs[i] = 0.;
+						ys[i] = phi0;
+						continue;
+					}
+					double sinc = Math.sin(c_rh), cosc = Math.cos(c_rh);
+					double phi;
+					if (oblique) {
+						phi = ProjectionMath.asin(cosc * sinphi0 + y * sinc * cosphi0 / c_rh);
+						y = (cosc - sinphi0 * Math.sin(phi)) * c_rh;
+						x *= sinc * cosphi0;
+					} else {
+						phi = ProjectionMath.asin(y * sinc / c_rh);
+						x *= sinc;
+						y = cosc * c_rh;
+					}
+					xs[i] = y == 0. ? 0. : Math.atan2(x, y);
+					ys[i] = phi;
+				}
+				break;
+			case NORTH_POLE:
+			case SOUTH_POLE:
+				// the north polar aspect is the south one turned around
+				double sign = mode == NORTH_POLE ? -1. : 1.;
+				for (int i = off; i < end; i++) {
+					double x = xs[i], y = ys[i];
+					double c_rh = ProjectionMath.distance(x, y);
+					if (c_rh > Math.PI) {
+						if (c_rh - EPS10 > Math.PI)
+							throw new ProjectionException();
+						c_rh = Math.PI;
+					} else if (c_rh < EPS10) {
+						xs[i] = 0.;
+						ys[i] = phi0;
+						continue;
+					}
+					xs[i] = Math.atan2(x, sign * y);
+					ys[i] = sign * (c_rh - ProjectionMath.HALFPI);
+				}
+				break;
+			}
+		} else if (mode == NORTH_POLE || mode == SOUTH_POLE) {
+			double es = this.es, Mp = this.Mp;
+			double[] en = this.en;
+			double sign = mode == NORTH_POLE ? -1. : 1.;
+			for (int i = off; i < end; i++) {
+				double x = xs[i], y = ys[i];
+				double c = ProjectionMath.distance(x, y);
+				if (c < EPS10) {
+					xs[i] = 0.;
+					ys[i] = phi0;
+					continue;
+				}
+				ys[i] = ProjectionMath.inv_mlfn(Mp + sign * c, es, en);
+				xs[i] = Math.atan2(x, sign * y);
+			}
+		} else {
+			super.projectInverseBatch(xs, ys, off, len);
+		}
+	}
+
 	public boolean hasInverse() {
 		return true;
 	}
@@ -20,6 +20,7 @@
 package io.github.dabasvijay.proj;
 
 import io.github.dabasvijay.ProjCoordinate;
+import io.github.dabasvijay.ProjectionException;
 import io.github.dabasvijay.util.ProjectionMath;
 
 /**
@@ -27,97 +28,134 @@ import io.github.dabasvijay.util.ProjectionMath;
  */
 public class EquidistantConicProjection extends ConicProjection {
 
-	private double standardLatitude1;
-	private double standardLatitude2;
-	
-	private double eccentricity = 0.822719;
-	private double eccentricity2 = eccentricity*eccentricity;
-	private double eccentricity4 = eccentricity2*eccentricity2;
-	private double eccentricity6 = eccentricity2*eccentricity4;
-	private double radius = 1;
-
-	private boolean northPole;
-	private double f, n, rho0;
+	private double n;
+	private double rho0;
+	private double c;
+	private double[] en;
 
 	public EquidistantConicProjection() {
 		minLatitude = ProjectionMath.degToRad(10);
 		maxLatitude = ProjectionMath.degToRad(70);
 		minLongitude = ProjectionMath.degToRad(-90);
 		maxLongitude = ProjectionMath.degToRad(90);
-		standardLatitude1 = Math.toDegrees( 60 );
-		standardLatitude2 = Math.toDegrees( 20 );
+	}
 
-		initialize(ProjectionMath.degToRad(0), ProjectionMath.degToRad(37.5), standardLatitude1, standardLatitude2);
+	public ProjCoordinate project(double lplam, double lpphi, ProjCoordinate out) {
+		double rho = c - (spherical ? lpphi : ProjectionMath.mlfn(lpphi, Math.sin(lpphi), Math.cos(lpphi), en));
+		out.x = rho * Math.sin(lplam *= n);
+		out.y = rho0 - rho * Math.cos(lplam);
+		return out;
 	}
 
-	public ProjCoordinate project(ProjCoordinate in, ProjCoordinate out) {
-		double lon = ProjectionMath.normalizeLongitude(in.x-projectionLongitude);
-		double lat = in.y;
-		double rho,theta,hold1,hold2,hold3;
-		
-		hold2 = Math.pow(((1.0 - eccentricity * Math.sin(lat)) / (1.0 + eccentricity * Math.sin(lat))), 0.5 * eccentricity);
-		hold3 = Math.tan(ProjectionMath.QUARTERPI - 0.5 * lat);
-		hold1 = (hold3 == 0.0) ? 0.0 : Math.pow(hold3 / hold2, n);
-		rho = radius * f * hold1;
-		theta = n * lon;
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		double n = this.n, c = this.c, rho0 = this.rho0;
+		// find the radius of each point's parallel, then place it on the cone
+		if (spherical) {
+			for (int i = off; i < end; i++)
+				ys[i] = c - ys[i];
+		} else {
+			double[] en = this.en;
+			for (int i = off; i < end; i++) {
+				double y = ys[i];
+				ys[i] = c - ProjectionMath.mlfn(y, Math.sin(y), Math.cos(y), en);
+			}
+		}
+		for (int i = off; i < end; i++) {
+			double rho = ys[i];
+			double x = xs[i] * n;
+			xs[i] = rho * Math.sin(x);
+			ys[i] = rho0 - rho * Math.cos(x);
+		}
+	}
 
-		out.x = rho * Math.sin(theta);
-		out.y = rho0 - rho * Math.cos(theta);
+	public ProjCoordinate projectInverse(double x, double y, ProjCoordinate out) {
+		double rho = ProjectionMath.distance(x, y = rho0 - y);
+		if (rho != 0.0) {
+			if (n < 0.0) {
+				rho = -rho;
+				x = -x;
+				y = -y;
+			}
+			out.y = spherical ? c - rho : ProjectionMath.inv_mlfn(c - rho, es, en);
+			out.x = Math.atan2(x, y) / n;
+		} else {
+			out.x = 0.0;
+			out.y = n > 0.0 ? ProjectionMath.HALFPI : -ProjectionMath.HALFPI;
+		}
 		return out;
 	}
 
-	public ProjCoordinate inverseProject(ProjCoordinate in, ProjCoordinate out) {
-		double theta, temp, rho, t, tphi, phi = 0, delta;
-		
-		theta = Math.atan(in.x / (rho0 - in.y));
-		out.x = (theta / n) + projectionLongitude;
-		
-		temp = in.x * in.x + (rho0 - in.y) * (rho0 - in.y);
-		rho = Math.sqrt(temp);
-		if (n < 0)
-			rho = - rho;
-		t = Math.pow((rho / (radius * f)), 1./n);
-		tphi = ProjectionMath.HALFPI - 2.0 * Math.atan(t);
-		delta = 1.0;
-		for (int i = 0; i < 100 && delta > 1.0e-8; i++) {
-			temp = (1.0 - eccentricity * Math.sin(tphi)) / (1.0 + eccentricity * Math.sin(tphi));
-			phi = ProjectionMath.HALFPI - 2.0 * Math.atan(t * Math.pow(temp, 0.5 * eccentricity));
-			delta = Math.abs(Math.abs(tphi) - Math.abs(phi));
-			tphi = phi;
+	protected void projectInverseBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		double n = this.n, c = this.c, rho0 = this.rho0;
+		// find the longitude and the radius of each point's parallel, leaving 0 for the apex
+		for (int i = off; i < end; i++) {
+			double x = xs[i];
+			double y = rho0 - ys[i];
+			double rho = ProjectionMath.distance(x, y);
+			if (rho != 0.0) {
+				if (n < 0.0) {
+					rho = -rho;
+					x = -x;
+					y = -y;
+				}
+				xs[i] = Math.atan2(x, y) / n;
+			} else
+				xs[i] = 0.0;
+			ys[i] = rho;
+		}
+		// then the latitude of the parallel
+		double pole = n > 0.0 ? ProjectionMath.HALFPI : -ProjectionMath.HALFPI;
+		if (spherical) {
+			for (int i = off; i < end; i++) {
+				double rho = ys[i];
+				ys[i] = rho == 0.0 ? pole : c - rho;
+			}
+		} else {
+			double es = this.es;
+			double[] en = this.en;
+			for (int i = off; i < end; i++) {
+				double rho = ys[i];
+				ys[i] = rho == 0.0 ? pole : ProjectionMath.inv_mlfn(c - rho, es, en);
+			}
 		}
-		out.y = phi;
-		return out;
 	}
 
-	private void initialize(double rlong0, double rlat0, double standardLatitude1, double standardLatitude2) {
+	public void initialize() {
 		super.initialize();
-		double t_standardLatitude1, m_standardLatitude1, t_standardLatitude2, m_standardLatitude2, t_rlat0;
-		
-		northPole = rlat0 > 0.0;
-		projectionLatitude = northPole ? ProjectionMath.HALFPI : -ProjectionMath.HALFPI;
-		
-		t_standardLatitude1 = Math.tan(ProjectionMath.QUARTERPI - 0.5 * standardLatitude1) / Math.pow((1.0 - eccentricity * 
-			Math.sin(standardLatitude1)) /(1.0 + eccentricity * Math.sin(standardLatitude1)), 0.5 * eccentricity);
-		m_standardLatitude1 = Math.cos(standardLatitude1) / Math.sqrt(1.0 - eccentricity2 
-			* Math.pow(Math.sin(standardLatitude1), 2.0));
-		t_standardLatitude2 = Math.tan(ProjectionMath.QUARTERPI - 0.5 * standardLatitude2) / Math.pow((1.0 - eccentricity *
-			Math.sin(standardLatitude2)) /(1.0 + eccentricity * Math.sin(standardLatitude2)), 0.5 * eccentricity);
-		m_standardLatitude2 = Math.cos(standardLatitude2) / Math.sqrt(1.0 - eccentricity2 
-			* Math.pow(Math.sin(standardLatitude2), 2.0));
-		t_rlat0 = Math.tan(ProjectionMath.QUARTERPI - 0.5 * rlat0) /
-			Math.pow((1.0 - eccentricity * Math.sin(rlat0)) /
-			(1.0 + eccentricity * Math.sin(rlat0)), 0.5 * eccentricity);
-		
-		if (standardLatitude1 != standardLatitude2)
-			n = (Math.log(m_standardLatitude1) - Math.log(m_standardLatitude2))/(Math.log(t_standardLatitude1) - Math.log(t_standardLatitude2));
-		else
-			n = Math.sin(standardLatitude1);
-		
-		f = m_standardLatitude1/(n * Math.pow(t_standardLatitude1, n));
-		projectionLongitude = rlong0;
-		rho0 = radius * f * Math.pow(t_rlat0,n);
+		double cosphi, sinphi;
+		boolean secant;
+
+		if (Math.abs(projectionLatitude1 + projectionLatitude2) < 1e-10)
+			throw new ProjectionException("-21");
+		n = sinphi = Math.sin(projectionLatitude1);
+		cosphi = Math.cos(projectionLatitude1);
+		secant = Math.abs(projectionLatitude1 - projectionLatitude2) >= 1e-10;
+		spherical = (es == 0.0);
+		if (!spherical) {
+			double ml1, m1;
+
+			en = ProjectionMath.enfn(es);
+			m1 = ProjectionMath.msfn(sinphi, cosphi, es);
+			ml1 = ProjectionMath.mlfn(projectionLatitude1, sinphi, cosphi, en);
+			if (secant) {
+				sinphi = Math.sin(projectionLatitude2);
+				cosphi = Math.cos(projectionLatitude2);
+				n = (m1 - ProjectionMath.msfn(sinphi, cosphi, es)) /
+					(ProjectionMath.mlfn(projectionLatitude2, sinphi, cosphi, en) - ml1);
+			}
+			c = ml1 + m1 / n;
+			rho0 = c - ProjectionMath.mlfn(projectionLatitude, Math.sin(projectionLatitude),
+				Math.cos(projectionLatitude), en);
+		} else {
+			if (secant)
+				n = (cosphi - Math.cos(projectionLatitude2)) / (projectionLatitude2 - projectionLatitude1);
+			c = projectionLatitude1 + cosphi / n;
+			rho0 = c - projectionLatitude;
+		}
 	}
-	
+
 	public boolean hasInverse() {
 		return true;
 	}
@@ -127,4 +165,3 @@ public class EquidistantConicProjection extends ConicProjection {
 	}
 
 }
-
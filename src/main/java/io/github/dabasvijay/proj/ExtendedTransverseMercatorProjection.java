@@ -83,7 +83,9 @@ public class ExtendedTransverseMercatorProjection extends CylindricalProjection
         return (B + h * Math.sin(2 * B));
     }
 
-    static double clenS(double[] a, int size, double arg_r, double arg_i, double[] R, double[] I) {
+    /* Complex Clenshaw summation, storing the real and imaginary parts of the sum in sum.x and sum.y.
+     * The projection methods pass their output coordinate, so nothing is allocated for the result. */
+    static void clenS(double[] a, int size, double arg_r, double arg_i, ProjCoordinate sum) {
         double hr, hr1, hr2, hi, hi1, hi2;
 
         /* arguments */
@@ -107,9 +109,8 @@ public class ExtendedTransverseMercatorProjection extends CylindricalProjection
 
         r = sin_arg_r * cosh_arg_i;
         i = cos_arg_r * sinh_arg_i;
-        R[0] = r * hr - i * hi;
-        I[0] = r * hi + i * hr;
-        return R[0];
+        sum.x = r * hr - i * hi;
+        sum.y = r * hi + i * hr;
     }
 
     /* Real Clenshaw summation */
@@ -131,8 +132,6 @@ public class ExtendedTransverseMercatorProjection extends CylindricalProjection
 
     public ProjCoordinate project(double lplam, double lpphi, ProjCoordinate xy) {
         double sin_Cn, cos_Cn, cos_Ce, sin_Ce;
-        double[] dCn = new double[1];
-        double[] dCe = new double[1];
         double Cn = lpphi, Ce = lplam;
 
         /* ell. LAT, LNG -> Gaussian LAT, LNG */
@@ -148,8 +147,9 @@ public class ExtendedTransverseMercatorProjection extends CylindricalProjection
 
         /* compl. sph. N, E -> ell. norm. N, E */
         Ce = asinhy(Math.tan(Ce));     /* Replaces: Ce  = log(tan(FORTPI + Ce*0.5)); */
-        Cn += clenS(gtu, PROJ_ETMERC_ORDER, 2 * Cn, 2 * Ce, dCn, dCe);
-        Ce += dCe[0];
+        clenS(gtu, PROJ_ETMERC_ORDER, 2 * Cn, 2 * Ce, xy);
+        Cn += xy.x;
+        Ce += xy.y;
         if (Math.abs(Ce) <= 2.623395162778) {
             xy.y = Qn * Cn + Zb;  /* Northing */
             xy.x = Qn * Ce;          /* Easting  */
@@ -160,8 +160,6 @@ public class ExtendedTransverseMercatorProjection extends CylindricalProjection
 
     public ProjCoordinate projectInverse(double x, double y, ProjCoordinate out) {
         double sin_Cn, cos_Cn, cos_Ce, sin_Ce;
-        double[] dCn = new double[1];
-        double[] dCe = new double[1];
         double Cn = y, Ce = x;
 
         /* normalize N, E */
@@ -170,8 +168,9 @@ public class ExtendedTransverseMercatorProjection extends CylindricalProjection
 
         if (Math.abs(Ce) <= 2.623395162778) { /* 150 degrees */
             /* norm. N, E -> compl. sph. LAT, LNG */
-            Cn += clenS(utg, PROJ_ETMERC_ORDER, 2 * Cn, 2 * Ce, dCn, dCe);
-            Ce += dCe[0];
+            clenS(utg, PROJ_ETMERC_ORDER, 2 * Cn, 2 * Ce, out);
+            Cn += out.x;
+            Ce += out.y;
             Ce = Math.atan(Math.sinh(Ce)); /* Replaces: Ce = 2*(atan(exp(Ce)) - FORTPI); */
             /* compl. sph. LAT -> Gaussian LAT, LNG */
             sin_Cn = Math.sin(Cn);
@@ -183,7 +182,8 @@ public class ExtendedTransverseMercatorProjection extends CylindricalProjection
             /* Gaussian LAT, LNG -> ell. LAT, LNG */
             out.y = gatg(cgb, PROJ_ETMERC_ORDER, Cn);
             out.x = Ce;
-        }
+        } else
+            out.x = out.y = Double.NaN;
 
         return out;
     }
@@ -78,6 +78,52 @@ public class GnomonicAzimuthalProjection extends AzimuthalProjection {
 		return xy;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		double sinphi0 = this.sinphi0, cosphi0 = this.cosphi0;
+		switch (mode) {
+		case EQUATOR:
+			for (int i = off; i < end; i++) {
+				double lam = xs[i], phi = ys[i];
+				double cosphi = Math.cos(phi);
+				double y = cosphi * Math.cos(lam);
+				if (Math.abs(y) <= EPS10)
+					throw new ProjectionException();
+				y = 1. / y;
+				xs[i] = y * cosphi * Math.sin(lam);
+				ys[i] = y * Math.sin(phi);
+			}
+			break;
+		case OBLIQUE:
+			for (int i = off; i < end; i++) {
+				double lam = xs[i], phi = ys[i];
+				double sinphi = Math.sin(phi), cosphi = Math.cos(phi), coslam = Math.cos(lam);
+				double y = sinphi0 * sinphi + cosphi0 * cosphi * coslam;
+				if (Math.abs(y) <= EPS10)
+					throw new ProjectionException();
+				y = 1. / y;
+				xs[i] = y * cosphi * Math.sin(lam);
+				ys[i] = y * (cosphi0 * sinphi - sinphi0 * cosphi * coslam);
+			}
+			break;
+		case SOUTH_POLE:
+		case NORTH_POLE:
+			// the south polar aspect is the north one turned around
+			double sign = mode == SOUTH_POLE ? -1. : 1.;
+			for (int i = off; i < end; i++) {
+				double lam = xs[i], phi = ys[i];
+				double cosphi = Math.cos(phi);
+				double y = sign * Math.sin(phi);
+				if (Math.abs(y) <= EPS10)
+					throw new ProjectionException();
+				y = 1. / y;
+				xs[i] = y * cosphi * Math.sin(lam);
+				ys[i] = y * (cosphi * (-sign * Math.cos(lam)));
+			}
+			break;
+		}
+	}
+
 	public ProjCoordinate projectInverse(double x, double y, ProjCoordinate lp) {
 		double  rh, cosz, sinz;
 
@@ -120,6 +166,61 @@ public class GnomonicAzimuthalProjection extends AzimuthalProjection {
 		return lp;
 	}
 
+	protected void projectInverseBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		double phi0 = projectionLatitude, sinphi0 = this.sinphi0, cosphi0 = this.cosphi0;
+		switch (mode) {
+		case OBLIQUE:
+		case EQUATOR:
+			boolean oblique = mode == OBLIQUE;
+			for (int i = off; i < end; i++) {
+				double x = xs[i], y = ys[i];
+				double rh = ProjectionMath.distance(x, y);
+				double sinz = Math.sin(Math.atan(rh));
+				double cosz = Math.sqrt(1. - sinz * sinz);
+				if (Math.abs(rh) <= EPS10) {
+					xs[i] = 0.;
+					ys[i] = phi0;
+					continue;
+				}
+				double phi = oblique ? cosz * sinphi0 + y * sinz * cosphi0 / rh : y * sinz / rh;
+				if (Math.abs(phi) >= 1.)
+					phi = phi > 0. ? ProjectionMath.HALFPI : - ProjectionMath.HALFPI;
+				else
+					phi = Math.asin(phi);
+				if (oblique) {
+					y = (cosz - sinphi0 * Math.sin(phi)) * rh;
+					x *= sinz * cosphi0;
+				} else {
+					y = cosz * rh;
+					x *= sinz;
+				}
+				xs[i] = Math.atan2(x, y);
+				ys[i] = phi;
+			}
+			break;
+		case SOUTH_POLE:
+		case NORTH_POLE:
+			boolean south = mode == SOUTH_POLE;
+			for (int i = off; i < end; i++) {
+				double x = xs[i], y = ys[i];
+				double rh = ProjectionMath.distance(x, y);
+				double z = Math.atan(rh);
+				if (Math.abs(rh) <= EPS10) {
+					xs[i] = 0.;
+					ys[i] = phi0;
+				} else if (south) {
+					xs[i] = Math.atan2(x, y);
+					ys[i] = z - ProjectionMath.HALFPI;
+				} else {
+					xs[i] = Math.atan2(x, -y);
+					ys[i] = ProjectionMath.HALFPI - z;
+				}
+			}
+			break;
+		}
+	}
+
 	public boolean hasInverse() {
 		return true;
 	}
@@ -44,6 +44,7 @@ public class HatanoProjection extends Projection {
 		int i;
 
 		c = Math.sin(lpphi) * (lpphi < 0. ? CS : CN);
+		lpphi = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.THETA_PLUS_SIN, c, lpphi);
 		for (i = NITER; i > 0; --i) {
 			lpphi -= th1 = (lpphi + Math.sin(lpphi) - c) / (1. + Math.cos(lpphi));
 			if (Math.abs(th1) < EPS) break;
@@ -53,6 +54,26 @@ public class HatanoProjection extends Projection {
 		return out;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		AuxiliaryAngleSolver solver = new AuxiliaryAngleSolver(AuxiliaryAngleSolver.THETA_PLUS_SIN, NITER, EPS);
+		double[] theta = solver.theta, k = solver.k;
+		for (int start = off, end = off + len; start < end; start += AuxiliaryAngleSolver.BLOCK_SIZE) {
+			int count = Math.min(AuxiliaryAngleSolver.BLOCK_SIZE, end - start);
+			for (int j = 0; j < count; j++) {
+				double lpphi = ys[start + j];
+				k[j] = Math.sin(lpphi) * (lpphi < 0. ? CS : CN);
+				theta[j] = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.THETA_PLUS_SIN, k[j], lpphi);
+			}
+			solver.solve(count);
+			for (int j = 0; j < count; j++) {
+				int i = start + j;
+				double lpphi = theta[j] * .5;
+				xs[i] = FXC * xs[i] * Math.cos(lpphi);
+				ys[i] = Math.sin(lpphi) * (lpphi < 0. ? FYCS : FYCN);
+			}
+		}
+	}
+
 	public ProjCoordinate projectInverse(double xyx, double xyy, ProjCoordinate out) {
 		double th;
 
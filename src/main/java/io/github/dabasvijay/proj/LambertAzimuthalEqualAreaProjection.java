@@ -200,6 +200,100 @@ public class LambertAzimuthalEqualAreaProjection extends Projection {
       }
     }
   
+    protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+      int end = off + len;
+      if (spherical) {
+        switch (mode) {
+        case EQUIT:
+          for (int i = off; i < end; i++) {
+            double lplam = xs[i], lpphi = ys[i];
+            double cosphi = Math.cos(lpphi);
+            double y = 1. + cosphi * Math.cos(lplam);
+            if (y <= EPS10) throw new ProjectionException("F");
+            y = Math.sqrt(2. / y);
+            xs[i] = y * cosphi * Math.sin(lplam);
+            ys[i] = y * Math.sin(lpphi);
+          }
+          break;
+        case OBLIQ:
+          double sinph0 = this.sinph0, cosph0 = this.cosph0;
+          for (int i = off; i < end; i++) {
+            double lplam = xs[i], lpphi = ys[i];
+            double sinphi = Math.sin(lpphi), cosphi = Math.cos(lpphi), coslam = Math.cos(lplam);
+            double y = 1. + sinph0 * sinphi + cosph0 * cosphi * coslam;
+            if (y <= EPS10) throw new ProjectionException("F");
+            y = Math.sqrt(2. / y);
+            xs[i] = y * cosphi * Math.sin(lplam);
+            ys[i] = y * (cosph0 * sinphi - sinph0 * cosphi * coslam);
+          }
+          break;
+        case N_POLE:
+        case S_POLE:
+          double phi0 = this.phi0;
+          boolean south = mode == S_POLE;
+          double sign = south ? 1. : -1.;
+          for (int i = off; i < end; i++) {
+            double lplam = xs[i], lpphi = ys[i];
+            if (Math.abs(lpphi + phi0) < EPS10) throw new ProjectionException("F");
+            double y = ProjectionMath.QUARTERPI - lpphi * .5;
+            y = 2. * (south ? Math.cos(y) : Math.sin(y));
+            xs[i] = y * Math.sin(lplam);
+            ys[i] = y * (sign * Math.cos(lplam));
+          }
+          break;
+        }
+      } else {
+        double e = this.e, one_es = this.one_es, qp = this.qp, xmf = this.xmf, ymf = this.ymf;
+        switch (mode) {
+        case OBLIQ:
+          double sinb1 = this.sinb1, cosb1 = this.cosb1;
+          for (int i = off; i < end; i++) {
+            double lplam = xs[i], lpphi = ys[i];
+            double coslam = Math.cos(lplam);
+            double sinb = ProjectionMath.qsfn(Math.sin(lpphi), e, one_es) / qp;
+            double cosb = Math.sqrt(1. - sinb * sinb);
+            double b = 1. + sinb1 * sinb + cosb1 * cosb * coslam;
+            if (Math.abs(b) < EPS10) throw new ProjectionException("F");
+            b = Math.sqrt(2. / b);
+            ys[i] = ymf * b * (cosb1 * sinb - sinb1 * cosb * coslam);
+            xs[i] = xmf * b * cosb * Math.sin(lplam);
+          }
+          break;
+        case EQUIT:
+          for (int i = off; i < end; i++) {
+            double lplam = xs[i], lpphi = ys[i];
+            double coslam = Math.cos(lplam);
+            double sinb = ProjectionMath.qsfn(Math.sin(lpphi), e, one_es) / qp;
+            double cosb = Math.sqrt(1. - sinb * sinb);
+            double b = 1. + cosb * coslam;
+            if (Math.abs(b) < EPS10) throw new ProjectionException("F");
+            b = Math.sqrt(2. / b);
+            ys[i] = b * sinb * ymf;
+            xs[i] = xmf * b * cosb * Math.sin(lplam);
+          }
+          break;
+        case N_POLE:
+        case S_POLE:
+          // the north polar aspect is the south one turned around
+          double sign = mode == S_POLE ? 1. : -1.;
+          for (int i = off; i < end; i++) {
+            double lplam = xs[i], lpphi = ys[i];
+            double q = ProjectionMath.qsfn(Math.sin(lpphi), e, one_es);
+            double b = lpphi - sign * ProjectionMath.HALFPI;
+            q = qp + sign * q;
+            if (Math.abs(b) < EPS10) throw new ProjectionException("F");
+            if (q >= 0.) {
+              b = Math.sqrt(q);
+              xs[i] = b * Math.sin(lplam);
+              ys[i] = Math.cos(lplam) * (sign * b);
+            } else
+              xs[i] = ys[i] = 0.;
+          }
+          break;
+        }
+      }
+    }
+
     public ProjCoordinate projectInverse(double xyx, double xyy, ProjCoordinate out) {
       if (spherical) {
         projectInverse_s(xyx, xyy, out);
@@ -295,6 +389,103 @@ public class LambertAzimuthalEqualAreaProjection extends Projection {
       out.y = lpphi;
     }
     
+    protected void projectInverseBatch(double[] xs, double[] ys, int off, int len) {
+      int end = off + len;
+      double phi0 = this.phi0;
+      if (spherical) {
+        switch (mode) {
+        case EQUIT:
+        case OBLIQ:
+          boolean oblique = mode == OBLIQ;
+          double sinph0 = this.sinph0, cosph0 = this.cosph0;
+          for (int i = off; i < end; i++) {
+            double xyx = xs[i], xyy = ys[i];
+            double rh = Math.hypot(xyx, xyy);
+            double lpphi = rh * .5;
+            if (lpphi > 1.) throw new ProjectionException("I_ERROR");
+            lpphi = 2. * Math.asin(lpphi);
+            double sinz = Math.sin(lpphi), cosz = Math.cos(lpphi);
+            if (oblique) {
+              lpphi = Math.abs(rh) <= EPS10 ? phi0 :
+                Math.asin(cosz * sinph0 + xyy * sinz * cosph0 / rh);
+              xyx *= sinz * cosph0;
+              xyy = (cosz - Math.sin(lpphi) * sinph0) * rh;
+            } else {
+              lpphi = Math.abs(rh) <= EPS10 ? 0. : Math.asin(xyy * sinz / rh);
+              xyx *= sinz;
+              xyy = cosz * rh;
+            }
+            xs[i] = xyy == 0. ? 0. : Math.atan2(xyx, xyy);
+            ys[i] = lpphi;
+          }
+          break;
+        case N_POLE:
+        case S_POLE:
+          // the north polar aspect is the south one turned around
+          double sign = mode == S_POLE ? 1. : -1.;
+          for (int i = off; i < end; i++) {
+            double xyx = xs[i], xyy = ys[i];
+            double rh = Math.hypot(xyx, xyy);
+            double lpphi = rh * .5;
+            if (lpphi > 1.) throw new ProjectionException("I_ERROR");
+            lpphi = 2. * Math.asin(lpphi);
+            xs[i] = Math.atan2(xyx, sign * xyy);
+            ys[i] = sign * (lpphi - ProjectionMath.HALFPI);
+          }
+          break;
+        }
+      } else {
+        double qp = this.qp;
+        double[] apa = this.apa;
+        switch (mode) {
+        case EQUIT:
+        case OBLIQ:
+          boolean oblique = mode == OBLIQ;
+          double dd = this.dd, rq = this.rq, sinb1 = this.sinb1, cosb1 = this.cosb1;
+          for (int i = off; i < end; i++) {
+            double xyx = xs[i] / dd, xyy = ys[i] * dd;
+            double rho = Math.hypot(xyx, xyy);
+            if (rho < EPS10) {
+              xs[i] = 0.;
+              ys[i] = phi0;
+              continue;
+            }
+            double sCe = 2. * Math.asin(.5 * rho / rq);
+            double cCe = Math.cos(sCe);
+            xyx *= (sCe = Math.sin(sCe));
+            double ab;
+            if (oblique) {
+              ab = cCe * sinb1 + xyy * sCe * cosb1 / rho;
+              xyy = rho * cosb1 * cCe - xyy * sinb1 * sCe;
+            } else {
+              ab = xyy * sCe / rho;
+              xyy = rho * cCe;
+            }
+            xs[i] = Math.atan2(xyx, xyy);
+            ys[i] = ProjectionMath.authlat(Math.asin(ab), apa);
+          }
+          break;
+        case N_POLE:
+        case S_POLE:
+          // the north polar aspect is the south one turned around
+          double sign = mode == S_POLE ? 1. : -1.;
+          for (int i = off; i < end; i++) {
+            double xyx = xs[i], xyy = sign * ys[i];
+            double q = xyx * xyx + xyy * xyy;
+            if (0 == q) {
+              xs[i] = 0.;
+              ys[i] = phi0;
+              continue;
+            }
+            double ab = 1. - q / qp;
+            xs[i] = Math.atan2(xyx, xyy);
+            ys[i] = ProjectionMath.authlat(Math.asin(-sign * ab), apa);
+          }
+          break;
+        }
+      }
+    }
+
 	  /**
 	   * Returns true if this projection is equal area
 	   */
@@ -67,6 +67,32 @@ public class LambertConformalConicProjection extends ConicProjection {
 		return out;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		double n = this.n, c = this.c, e = this.e;
+		// find the radius of each point's parallel, then place it on the cone
+		if (spherical) {
+			for (int i = off; i < end; i++) {
+				double y = ys[i];
+				ys[i] = Math.abs(Math.abs(y) - ProjectionMath.HALFPI) < 1e-10 ? 0.0 :
+					c * Math.pow(Math.tan(ProjectionMath.QUARTERPI + .5 * y), -n);
+			}
+		} else {
+			for (int i = off; i < end; i++) {
+				double y = ys[i];
+				ys[i] = Math.abs(Math.abs(y) - ProjectionMath.HALFPI) < 1e-10 ? 0.0 :
+					c * Math.pow(ProjectionMath.tsfn(y, Math.sin(y), e), n);
+			}
+		}
+		double k = scaleFactor, rho0 = this.rho0;
+		for (int i = off; i < end; i++) {
+			double rho = ys[i];
+			double x = xs[i] * n;
+			xs[i] = k * (rho * Math.sin(x));
+			ys[i] = k * (rho0 - rho * Math.cos(x));
+		}
+	}
+
 	public ProjCoordinate projectInverse(double x, double y, ProjCoordinate out) {
 		x /= scaleFactor;
 		y /= scaleFactor;
@@ -89,6 +115,40 @@ public class LambertConformalConicProjection extends ConicProjection {
 		return out;
 	}
 
+	protected void projectInverseBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		double n = this.n, c = this.c, e = this.e, k = scaleFactor, rho0 = this.rho0;
+		// find the longitude and the radius of each point's parallel, leaving 0 for the apex
+		for (int i = off; i < end; i++) {
+			double x = xs[i] / k;
+			double y = rho0 - ys[i] / k;
+			double rho = ProjectionMath.distance(x, y);
+			if (rho != 0) {
+				if (n < 0.0) {
+					rho = -rho;
+					x = -x;
+					y = -y;
+				}
+				xs[i] = Math.atan2(x, y) / n;
+			} else
+				xs[i] = 0.0;
+			ys[i] = rho;
+		}
+		// then the latitude of the parallel
+		double pole = n > 0.0 ? ProjectionMath.HALFPI : -ProjectionMath.HALFPI;
+		if (spherical) {
+			for (int i = off; i < end; i++) {
+				double rho = ys[i];
+				ys[i] = rho == 0 ? pole : 2.0 * Math.atan(Math.pow(c / rho, 1.0/n)) - ProjectionMath.HALFPI;
+			}
+		} else {
+			for (int i = off; i < end; i++) {
+				double rho = ys[i];
+				ys[i] = rho == 0 ? pole : ProjectionMath.phi2(Math.pow(rho / c, 1.0/n), e);
+			}
+		}
+	}
+
 	public void initialize() {
 		super.initialize();
 		double cosphi, sinphi;
@@ -40,8 +40,9 @@ public class McBrydeThomasFlatPolarQuarticProjection extends PseudoCylindricalPr
 		int i;
 
 		c = C * Math.sin(lpphi);
+		lpphi = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.HALF_SIN_PLUS_SIN, c, lpphi);
 		for (i = NITER; i > 0; --i) {
-			out.y -= th1 = (Math.sin(.5*lpphi) + Math.sin(lpphi) - c) /
+			lpphi -= th1 = (Math.sin(.5*lpphi) + Math.sin(lpphi) - c) /
 				(.5*Math.cos(.5*lpphi)  + Math.cos(lpphi));
 			if (Math.abs(th1) < EPS) break;
 		}
@@ -50,6 +51,26 @@ public class McBrydeThomasFlatPolarQuarticProjection extends PseudoCylindricalPr
 		return out;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		AuxiliaryAngleSolver solver = new AuxiliaryAngleSolver(AuxiliaryAngleSolver.HALF_SIN_PLUS_SIN, NITER, EPS);
+		double[] theta = solver.theta, k = solver.k;
+		for (int start = off, end = off + len; start < end; start += AuxiliaryAngleSolver.BLOCK_SIZE) {
+			int count = Math.min(AuxiliaryAngleSolver.BLOCK_SIZE, end - start);
+			for (int j = 0; j < count; j++) {
+				double lpphi = ys[start + j];
+				k[j] = C * Math.sin(lpphi);
+				theta[j] = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.HALF_SIN_PLUS_SIN, k[j], lpphi);
+			}
+			solver.solve(count);
+			for (int j = 0; j < count; j++) {
+				int i = start + j;
+				double lpphi = theta[j];
+				xs[i] = FXC * xs[i] * (1.0 + 2. * Math.cos(lpphi)/Math.cos(0.5 * lpphi));
+				ys[i] = FYC * Math.sin(0.5 * lpphi);
+			}
+		}
+	}
+
 	public ProjCoordinate projectInverse(double xyx, double xyy, ProjCoordinate out) {
 		double t = 0;
 
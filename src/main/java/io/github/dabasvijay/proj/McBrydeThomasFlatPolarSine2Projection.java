@@ -26,21 +26,22 @@ public class McBrydeThomasFlatPolarSine2Projection extends Projection {
 
 	private final static int MAX_ITER = 10;
 	private final static double LOOP_TOL = 1e-7;
-	private final static double C1 = 0.45503;
-	private final static double C2 = 1.36509;
+	final static double C1 = 0.45503;
+	final static double C2 = 1.36509;
 	private final static double C3 = 1.41546;
 	private final static double C_x = 0.22248;
 	private final static double C_y = 1.44492;
-	private final static double C1_2 = 0.33333333333333333333333333;
+	final static double C1_2 = 0.33333333333333333333333333;
 
 	public ProjCoordinate project(double lplam, double lpphi, ProjCoordinate out) {
 		double k, V, t;
 		int i;
 
 		k = C3 * Math.sin(lpphi);
+		lpphi = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.FLAT_POLAR_SINE2, k, lpphi);
 		for (i = MAX_ITER; i > 0; i--) {
 			t = lpphi / C2;
-			out.y -= V = (C1 * Math.sin(t) + Math.sin(lpphi) - k) /
+			lpphi -= V = (C1 * Math.sin(t) + Math.sin(lpphi) - k) /
 				(C1_2 * Math.cos(t) + Math.cos(lpphi));
 			if (Math.abs(V) < LOOP_TOL)
 				break;
@@ -51,6 +52,27 @@ public class McBrydeThomasFlatPolarSine2Projection extends Projection {
 		return out;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		AuxiliaryAngleSolver solver = new AuxiliaryAngleSolver(AuxiliaryAngleSolver.FLAT_POLAR_SINE2, MAX_ITER, LOOP_TOL);
+		double[] theta = solver.theta, k = solver.k;
+		for (int start = off, end = off + len; start < end; start += AuxiliaryAngleSolver.BLOCK_SIZE) {
+			int count = Math.min(AuxiliaryAngleSolver.BLOCK_SIZE, end - start);
+			for (int j = 0; j < count; j++) {
+				double lpphi = ys[start + j];
+				k[j] = C3 * Math.sin(lpphi);
+				theta[j] = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.FLAT_POLAR_SINE2, k[j], lpphi);
+			}
+			solver.solve(count);
+			for (int j = 0; j < count; j++) {
+				int i = start + j;
+				double lpphi = theta[j];
+				double t = lpphi / C2;
+				xs[i] = C_x * xs[i] * (1. + 3. * Math.cos(lpphi)/Math.cos(t) );
+				ys[i] = C_y * Math.sin(t);
+			}
+		}
+	}
+
 	public ProjCoordinate projectInverse(double xyx, double xyy, ProjCoordinate out) {
 		double t, s;
 
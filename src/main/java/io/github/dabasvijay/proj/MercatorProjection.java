@@ -40,6 +40,23 @@ public class MercatorProjection extends CylindricalProjection {
 		return out;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		double k = scaleFactor;
+		for (int i = off; i < end; i++)
+			xs[i] = k * xs[i];
+		if (spherical) {
+			for (int i = off; i < end; i++)
+				ys[i] = k * Math.log(Math.tan(ProjectionMath.QUARTERPI + 0.5 * ys[i]));
+		} else {
+			double e = this.e;
+			for (int i = off; i < end; i++) {
+				double phi = ys[i];
+				ys[i] = -k * Math.log(ProjectionMath.tsfn(phi, Math.sin(phi), e));
+			}
+		}
+	}
+
 	public ProjCoordinate projectInverse(double x, double y, ProjCoordinate out) {
 		if (spherical) {
 			out.y = ProjectionMath.HALFPI - 2. * Math.atan(Math.exp(-y / scaleFactor));
@@ -51,6 +68,21 @@ public class MercatorProjection extends CylindricalProjection {
 		return out;
 	}
 
+	protected void projectInverseBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		double k = scaleFactor;
+		for (int i = off; i < end; i++)
+			xs[i] = xs[i] / k;
+		if (spherical) {
+			for (int i = off; i < end; i++)
+				ys[i] = ProjectionMath.HALFPI - 2. * Math.atan(Math.exp(-ys[i] / k));
+		} else {
+			double e = this.e;
+			for (int i = off; i < end; i++)
+				ys[i] = ProjectionMath.phi2(Math.exp(-ys[i] / k), e);
+		}
+	}
+
 	public boolean hasInverse() {
 		return true;
 	}
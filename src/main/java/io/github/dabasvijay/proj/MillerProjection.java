@@ -34,12 +34,23 @@ public class MillerProjection extends CylindricalProjection {
 		return out;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		// x is unchanged
+		for (int i = off, end = off + len; i < end; i++)
+			ys[i] = Math.log(Math.tan(ProjectionMath.QUARTERPI + ys[i] * .4)) * 1.25;
+	}
+
 	public ProjCoordinate projectInverse(double xyx, double xyy, ProjCoordinate out) {
 		out.x = xyx;
 		out.y = 2.5 * (Math.atan(Math.exp(.8 * xyy)) - ProjectionMath.QUARTERPI);
 		return out;
 	}
 
+	protected void projectInverseBatch(double[] xs, double[] ys, int off, int len) {
+		for (int i = off, end = off + len; i < end; i++)
+			ys[i] = 2.5 * (Math.atan(Math.exp(.8 * ys[i])) - ProjectionMath.QUARTERPI);
+	}
+
 	public boolean hasInverse() {
 		return true;
 	}
@@ -82,6 +82,7 @@ public class MolleweideProjection extends PseudoCylindricalProjection {
 		int i;
 
 		k = cp * Math.sin(lpphi);
+		lpphi = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.THETA_PLUS_SIN, k, lpphi);
 		for (i = MAX_ITER; i != 0; i--) {
 			lpphi -= v = (lpphi + Math.sin(lpphi) - k) / (1. + Math.cos(lpphi));
 			if (Math.abs(v) < TOLERANCE)
@@ -96,6 +97,32 @@ public class MolleweideProjection extends PseudoCylindricalProjection {
 		return xy;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		AuxiliaryAngleSolver solver = new AuxiliaryAngleSolver(AuxiliaryAngleSolver.THETA_PLUS_SIN, MAX_ITER, TOLERANCE);
+		double[] theta = solver.theta, k = solver.k;
+		boolean[] converged = solver.converged;
+		double cx = this.cx, cy = this.cy, cp = this.cp;
+		for (int start = off, end = off + len; start < end; start += AuxiliaryAngleSolver.BLOCK_SIZE) {
+			int count = Math.min(AuxiliaryAngleSolver.BLOCK_SIZE, end - start);
+			for (int j = 0; j < count; j++) {
+				double lpphi = ys[start + j];
+				k[j] = cp * Math.sin(lpphi);
+				theta[j] = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.THETA_PLUS_SIN, k[j], lpphi);
+			}
+			solver.solve(count);
+			for (int j = 0; j < count; j++) {
+				int i = start + j;
+				double lpphi = theta[j];
+				if (converged[j])
+					lpphi *= 0.5;
+				else
+					lpphi = (lpphi < 0.) ? -Math.PI/2 : Math.PI/2;
+				xs[i] = cx * xs[i] * Math.cos(lpphi);
+				ys[i] = cy * Math.sin(lpphi);
+			}
+		}
+	}
+
 	public ProjCoordinate projectInverse(double x, double y, ProjCoordinate lp) {
 		double lat, lon;
 
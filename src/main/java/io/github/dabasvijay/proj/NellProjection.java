@@ -33,9 +33,10 @@ public class NellProjection extends Projection {
 
 		k = 2. * Math.sin(lpphi);
 		V = lpphi * lpphi;
-		out.y *= 1.00371 + V * (-0.0935382 + V * -0.011412);
+		lpphi *= 1.00371 + V * (-0.0935382 + V * -0.011412);
+		lpphi = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.THETA_PLUS_SIN, k, lpphi);
 		for (i = MAX_ITER; i > 0 ; --i) {
-			out.y -= V = (lpphi + Math.sin(lpphi) - k) /
+			lpphi -= V = (lpphi + Math.sin(lpphi) - k) /
 				(1. + Math.cos(lpphi));
 			if (Math.abs(V) < LOOP_TOL)
 				break;
@@ -45,6 +46,28 @@ public class NellProjection extends Projection {
 		return out;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		AuxiliaryAngleSolver solver = new AuxiliaryAngleSolver(AuxiliaryAngleSolver.THETA_PLUS_SIN, MAX_ITER, LOOP_TOL);
+		double[] theta = solver.theta, k = solver.k;
+		for (int start = off, end = off + len; start < end; start += AuxiliaryAngleSolver.BLOCK_SIZE) {
+			int count = Math.min(AuxiliaryAngleSolver.BLOCK_SIZE, end - start);
+			for (int j = 0; j < count; j++) {
+				double lpphi = ys[start + j];
+				double V = lpphi * lpphi;
+				k[j] = 2. * Math.sin(lpphi);
+				theta[j] = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.THETA_PLUS_SIN, k[j],
+						lpphi * (1.00371 + V * (-0.0935382 + V * -0.011412)));
+			}
+			solver.solve(count);
+			for (int j = 0; j < count; j++) {
+				int i = start + j;
+				double lpphi = theta[j];
+				xs[i] = 0.5 * xs[i] * (1. + Math.cos(lpphi));
+				ys[i] = lpphi;
+			}
+		}
+	}
+
 	public ProjCoordinate projectInverse(double xyx, double xyy, ProjCoordinate out) {
 		double th, s;
 
@@ -72,6 +72,42 @@ public class OrthographicAzimuthalProjection extends AzimuthalProjection {
 		return xy;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		// points on the far side get a NaN y, as in project
+		switch (mode) {
+		case EQUATOR:
+			for (int i = off; i < end; i++) {
+				double lam = xs[i], phi = ys[i];
+				double cosphi = Math.cos(phi);
+				ys[i] = cosphi * Math.cos(lam) < - EPS10 ? Double.NaN : Math.sin(phi);
+				xs[i] = cosphi * Math.sin(lam);
+			}
+			break;
+		case OBLIQUE:
+			double sinphi0 = this.sinphi0, cosphi0 = this.cosphi0;
+			for (int i = off; i < end; i++) {
+				double lam = xs[i], phi = ys[i];
+				double sinphi = Math.sin(phi), cosphi = Math.cos(phi), coslam = Math.cos(lam);
+				ys[i] = sinphi0 * (sinphi) + cosphi0 * cosphi * coslam < - EPS10 ? Double.NaN :
+					cosphi0 * sinphi - sinphi0 * cosphi * coslam;
+				xs[i] = cosphi * Math.sin(lam);
+			}
+			break;
+		case NORTH_POLE:
+		case SOUTH_POLE:
+			double phi0 = projectionLatitude;
+			double sign = mode == NORTH_POLE ? -1. : 1.;
+			for (int i = off; i < end; i++) {
+				double lam = xs[i], phi = ys[i];
+				double cosphi = Math.cos(phi);
+				ys[i] = Math.abs(phi - phi0) - EPS10 > Math.PI / 2 ? Double.NaN : cosphi * (sign * Math.cos(lam));
+				xs[i] = cosphi * Math.sin(lam);
+			}
+			break;
+		}
+	}
+
 	public ProjCoordinate projectInverse(double x, double y, ProjCoordinate lp) {
 		double  rh, cosc, sinc;
 
@@ -114,6 +150,62 @@ public class OrthographicAzimuthalProjection extends AzimuthalProjection {
 		return lp;
 	}
 
+	protected void projectInverseBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		double phi0 = projectionLatitude;
+		switch (mode) {
+		case NORTH_POLE:
+		case SOUTH_POLE:
+			double sign = mode == NORTH_POLE ? -1. : 1.;
+			for (int i = off; i < end; i++) {
+				double x = xs[i], y = ys[i];
+				double rh = ProjectionMath.distance(x, y), sinc = rh;
+				if (sinc > 1.) {
+					if ((sinc - 1.) > EPS10) throw new ProjectionException();
+					sinc = 1.;
+				}
+				if (Math.abs(rh) <= EPS10)
+					ys[i] = phi0;
+				else {
+					y = sign * y;
+					ys[i] = -sign * Math.acos(sinc);
+				}
+				xs[i] = Math.atan2(x, y);
+			}
+			break;
+		case EQUATOR:
+		case OBLIQUE:
+			double sinphi0 = this.sinphi0, cosphi0 = this.cosphi0;
+			boolean oblique = mode == OBLIQUE;
+			for (int i = off; i < end; i++) {
+				double x = xs[i], y = ys[i];
+				double rh = ProjectionMath.distance(x, y), sinc = rh;
+				if (sinc > 1.) {
+					if ((sinc - 1.) > EPS10) throw new ProjectionException();
+					sinc = 1.;
+				}
+				double cosc = Math.sqrt(1. - sinc * sinc);
+				if (Math.abs(rh) <= EPS10)
+					ys[i] = phi0;
+				else {
+					double phi;
+					if (oblique) {
+						phi = cosc * sinphi0 + y * sinc * cosphi0 / rh;
+						y = (cosc - sinphi0 * phi) * rh;
+						x *= sinc * cosphi0;
+					} else {
+						phi = y * sinc / rh;
+						x *= sinc;
+						y = cosc * rh;
+					}
+					ys[i] = Math.abs(phi) >= 1. ? phi < 0. ? -ProjectionMath.HALFPI : ProjectionMath.HALFPI : Math.asin(phi);
+				}
+				xs[i] = y == 0. ? (x == 0. ? 0. : x < 0. ? -ProjectionMath.HALFPI : ProjectionMath.HALFPI) : Math.atan2(x, y);
+			}
+			break;
+		}
+	}
+
 	public boolean hasInverse() {
 		return true;
 	}
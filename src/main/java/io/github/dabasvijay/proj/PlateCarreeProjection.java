@@ -19,6 +19,13 @@ package io.github.dabasvijay.proj;
 
 public class PlateCarreeProjection extends CylindricalProjection {
 	
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		// the projected ordinates are the geographic ones
+	}
+
+	protected void projectInverseBatch(double[] xs, double[] ys, int off, int len) {
+	}
+
 	public boolean hasInverse() {
 		return true;
 	}
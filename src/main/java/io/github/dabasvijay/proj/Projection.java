@@ -267,6 +267,64 @@ public abstract class Projection implements Cloneable, java.io.Serializable {
         return dst;
     }
 
+    /**
+     * Projects a batch of geographic points (in radians), in place,
+     * producing projected results (in the units of the target coordinate system).
+     * Each point gives the same result as {@link #projectRadians(ProjCoordinate, ProjCoordinate)}.
+     * If a point fails the exception is thrown, and the other points may or may not have been projected.
+     *
+     * @param xs the geographic x ordinates (in radians), replaced by the projected x ordinates
+     * @param ys the geographic y ordinates (in radians), replaced by the projected y ordinates
+     * @param off the index of the first point
+     * @param len the number of points
+     */
+    public void projectRadians(double[] xs, double[] ys, int off, int len) {
+        int end = off + len;
+        if (projectionLongitude != 0) {
+            for (int i = off; i < end; i++)
+                xs[i] = ProjectionMath.normalizeLongitude(xs[i] - projectionLongitude);
+        }
+        projectBatch(xs, ys, off, len);
+        if (unit != null && unit.equals(Units.DEGREES)) {
+            // convert radians to DD
+            for (int i = off; i < end; i++) {
+                xs[i] *= RTD;
+                ys[i] *= RTD;
+            }
+        }
+        else {
+            // assume result is in metres
+            double scale = totalScale, fe = totalFalseEasting, fn = totalFalseNorthing;
+            for (int i = off; i < end; i++) {
+                xs[i] = scale * xs[i] + fe;
+                ys[i] = scale * ys[i] + fn;
+            }
+        }
+    }
+
+    /**
+     * Computes the projection of a batch of points, in place, as {@link #project(double, double, ProjCoordinate)}
+     * does for each of them.
+     * By default this projects the points one at a time;
+     * projections which override <tt>project</tt> may override this with a loop over the arrays,
+     * and subclasses of those which change the projection must override both.
+     *
+     * @param xs the geographic x ordinates (in radians), replaced by the projected x ordinates
+     * @param ys the geographic y ordinates (in radians), replaced by the projected y ordinates
+     * @param off the index of the first point
+     * @param len the number of points
+     */
+    protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+        ProjCoordinate pt = new ProjCoordinate();
+        for (int i = off, end = off + len; i < end; i++) {
+            pt.x = xs[i];
+            pt.y = ys[i];
+            project(pt.x, pt.y, pt);
+            xs[i] = pt.x;
+            ys[i] = pt.y;
+        }
+    }
+
     /**
      * Computes the projection of a given point
      * (i.e. from geographics to projection space).
@@ -332,6 +390,71 @@ public abstract class Projection implements Cloneable, java.io.Serializable {
         return dst;
     }
 
+    /**
+     * Inverse-projects a batch of points (in the units defined by the coordinate system), in place,
+     * producing geographic results (in radians).
+     * Each point gives the same result as {@link #inverseProjectRadians(ProjCoordinate, ProjCoordinate)}.
+     * If a point fails the exception is thrown, and the other points may or may not have been inverse-projected.
+     *
+     * @param xs the projected x ordinates, replaced by the geographic x ordinates (in radians)
+     * @param ys the projected y ordinates, replaced by the geographic y ordinates (in radians)
+     * @param off the index of the first point
+     * @param len the number of points
+     */
+    public void inverseProjectRadians(double[] xs, double[] ys, int off, int len) {
+        int end = off + len;
+        if (unit != null && unit.equals(Units.DEGREES)) {
+            // convert DD to radians
+            for (int i = off; i < end; i++) {
+                xs[i] *= DTR;
+                ys[i] *= DTR;
+            }
+        }
+        else {
+            double scale = totalScale, fe = totalFalseEasting, fn = totalFalseNorthing;
+            for (int i = off; i < end; i++) {
+                xs[i] = (xs[i] - fe) / scale;
+                ys[i] = (ys[i] - fn) / scale;
+            }
+        }
+
+        projectInverseBatch(xs, ys, off, len);
+
+        for (int i = off; i < end; i++) {
+            double x = xs[i];
+            if (x < -Math.PI)
+                x = -Math.PI;
+            else if (x > Math.PI)
+                x = Math.PI;
+            if (projectionLongitude != 0)
+                x = ProjectionMath.normalizeLongitude(x+projectionLongitude);
+            xs[i] = x;
+        }
+    }
+
+    /**
+     * Computes the inverse projection of a batch of points, in place,
+     * as {@link #projectInverse(double, double, ProjCoordinate)} does for each of them.
+     * By default this inverse-projects the points one at a time;
+     * projections which override <tt>projectInverse</tt> may override this with a loop over the arrays,
+     * and subclasses of those which change the projection must override both.
+     *
+     * @param xs the projected x ordinates, replaced by the geographic x ordinates (in radians)
+     * @param ys the projected y ordinates, replaced by the geographic y ordinates (in radians)
+     * @param off the index of the first point
+     * @param len the number of points
+     */
+    protected void projectInverseBatch(double[] xs, double[] ys, int off, int len) {
+        ProjCoordinate pt = new ProjCoordinate();
+        for (int i = off, end = off + len; i < end; i++) {
+            pt.x = xs[i];
+            pt.y = ys[i];
+            projectInverse(pt.x, pt.y, pt);
+            xs[i] = pt.x;
+            ys[i] = pt.y;
+        }
+    }
+
     /**
      * Computes the inverse projection of a given point
      * (i.e. from projection space to geographics).
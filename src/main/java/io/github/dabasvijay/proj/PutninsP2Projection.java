@@ -37,22 +37,48 @@ public class PutninsP2Projection extends Projection {
 
 		p = C_p * Math.sin(lpphi);
 		s = lpphi * lpphi;
-		out.y *= 0.615709 + s * ( 0.00909953 + s * 0.0046292 );
+		lpphi *= 0.615709 + s * ( 0.00909953 + s * 0.0046292 );
+		lpphi = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.PUTNINS_P2, p, lpphi);
 		for (i = NITER; i > 0; --i) {
 			c = Math.cos(lpphi);
 			s = Math.sin(lpphi);
-			out.y -= V = (lpphi + s * (c - 1.) - p) /
+			lpphi -= V = (lpphi + s * (c - 1.) - p) /
 				(1. + c * (c - 1.) - s * s);
 			if (Math.abs(V) < EPS)
 				break;
 		}
 		if (i == 0)
-			out.y = lpphi < 0 ? - PI_DIV_3 : PI_DIV_3;
+			lpphi = lpphi < 0 ? - PI_DIV_3 : PI_DIV_3;
 		out.x = C_x * lplam * (Math.cos(lpphi) - 0.5);
 		out.y = C_y * Math.sin(lpphi);
 		return out;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		AuxiliaryAngleSolver solver = new AuxiliaryAngleSolver(AuxiliaryAngleSolver.PUTNINS_P2, NITER, EPS);
+		double[] theta = solver.theta, k = solver.k;
+		boolean[] converged = solver.converged;
+		for (int start = off, end = off + len; start < end; start += AuxiliaryAngleSolver.BLOCK_SIZE) {
+			int count = Math.min(AuxiliaryAngleSolver.BLOCK_SIZE, end - start);
+			for (int j = 0; j < count; j++) {
+				double lpphi = ys[start + j];
+				double s = lpphi * lpphi;
+				k[j] = C_p * Math.sin(lpphi);
+				theta[j] = AuxiliaryAngleSolver.seed(AuxiliaryAngleSolver.PUTNINS_P2, k[j],
+						lpphi * (0.615709 + s * ( 0.00909953 + s * 0.0046292 )));
+			}
+			solver.solve(count);
+			for (int j = 0; j < count; j++) {
+				int i = start + j;
+				double lpphi = theta[j];
+				if (!converged[j])
+					lpphi = lpphi < 0 ? - PI_DIV_3 : PI_DIV_3;
+				xs[i] = C_x * xs[i] * (Math.cos(lpphi) - 0.5);
+				ys[i] = C_y * Math.sin(lpphi);
+			}
+		}
+	}
+
 	public ProjCoordinate projectInverse(double xyx, double xyy, ProjCoordinate out) {
 		double c;
 
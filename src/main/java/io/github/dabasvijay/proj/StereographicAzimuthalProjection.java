@@ -171,6 +171,88 @@ public class StereographicAzimuthalProjection extends AzimuthalProjection {
 		return xy;
 	}
 
+	protected void projectBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		double akm1 = this.akm1, sinphi0 = this.sinphi0, cosphi0 = this.cosphi0;
+		if (spherical) {
+			switch (mode) {
+			case EQUATOR:
+				for (int i = off; i < end; i++) {
+					double lam = xs[i], phi = ys[i];
+					double cosphi = Math.cos(phi);
+					double y = 1. + cosphi * Math.cos(lam);
+					if (y <= EPS10)
+						throw new ProjectionException();
+					y = akm1 / y;
+					xs[i] = y * cosphi * Math.sin(lam);
+					ys[i] = y * Math.sin(phi);
+				}
+				break;
+			case OBLIQUE:
+				for (int i = off; i < end; i++) {
+					double lam = xs[i], phi = ys[i];
+					double sinphi = Math.sin(phi), cosphi = Math.cos(phi), coslam = Math.cos(lam);
+					double y = 1. + sinphi0 * sinphi + cosphi0 * cosphi * coslam;
+					if (y <= EPS10)
+						throw new ProjectionException();
+					y = akm1 / y;
+					xs[i] = y * cosphi * Math.sin(lam);
+					ys[i] = y * (cosphi0 * sinphi - sinphi0 * cosphi * coslam);
+				}
+				break;
+			case NORTH_POLE:
+			case SOUTH_POLE:
+				// the north polar aspect is the south one turned around
+				double sign = mode == NORTH_POLE ? -1. : 1.;
+				for (int i = off; i < end; i++) {
+					double lam = xs[i], phi = sign * ys[i];
+					if (Math.abs(phi - ProjectionMath.HALFPI) < TOL)
+						throw new ProjectionException();
+					double y = akm1 * Math.tan(ProjectionMath.QUARTERPI + .5 * phi);
+					xs[i] = Math.sin(lam) * y;
+					ys[i] = y * (sign * Math.cos(lam));
+				}
+				break;
+			}
+		} else {
+			double e = this.e;
+			switch (mode) {
+			case OBLIQUE:
+				for (int i = off; i < end; i++) {
+					double lam = xs[i], phi = ys[i];
+					double coslam = Math.cos(lam);
+					double X = 2. * Math.atan(ssfn(phi, Math.sin(phi), e)) - ProjectionMath.HALFPI;
+					double sinX = Math.sin(X), cosX = Math.cos(X);
+					double A = akm1 / (cosphi0 * (1. + sinphi0 * sinX + cosphi0 * cosX * coslam));
+					ys[i] = A * (cosphi0 * sinX - sinphi0 * cosX * coslam);
+					xs[i] = A * cosX * Math.sin(lam);
+				}
+				break;
+			case EQUATOR:
+				for (int i = off; i < end; i++) {
+					double lam = xs[i], phi = ys[i];
+					double X = 2. * Math.atan(ssfn(phi, Math.sin(phi), e)) - ProjectionMath.HALFPI;
+					double cosX = Math.cos(X);
+					double A = akm1 / (1. + cosX * Math.cos(lam));
+					ys[i] = A * Math.sin(X);
+					xs[i] = A * cosX * Math.sin(lam);
+				}
+				break;
+			case SOUTH_POLE:
+			case NORTH_POLE:
+				// the south polar aspect is the north one turned around
+				double sign = mode == SOUTH_POLE ? -1. : 1.;
+				for (int i = off; i < end; i++) {
+					double lam = xs[i], phi = ys[i];
+					double x = akm1 * ProjectionMath.tsfn(sign * phi, sign * Math.sin(phi), e);
+					ys[i] = - x * (sign * Math.cos(lam));
+					xs[i] = x * Math.sin(lam);
+				}
+				break;
+			}
+		}
+	}
+
 	public ProjCoordinate projectInverse(double x, double y, ProjCoordinate lp) {
 		if (spherical) {
 			double  c, rh, sinc, cosc;
@@ -250,6 +332,96 @@ public class StereographicAzimuthalProjection extends AzimuthalProjection {
 		return lp;
 	}
 
+	protected void projectInverseBatch(double[] xs, double[] ys, int off, int len) {
+		int end = off + len;
+		double akm1 = this.akm1, sinphi0 = this.sinphi0, cosphi0 = this.cosphi0;
+		if (spherical) {
+			switch (mode) {
+			case EQUATOR:
+				for (int i = off; i < end; i++) {
+					double x = xs[i], y = ys[i];
+					double rh = ProjectionMath.distance(x, y);
+					double c = 2. * Math.atan(rh / akm1);
+					double sinc = Math.sin(c), cosc = Math.cos(c);
+					ys[i] = Math.abs(rh) <= EPS10 ? 0. : Math.asin(y * sinc / rh);
+					xs[i] = cosc != 0. || x != 0. ? Math.atan2(x * sinc, cosc * rh) : 0.;
+				}
+				break;
+			case OBLIQUE:
+				double phi0 = projectionLatitude;
+				for (int i = off; i < end; i++) {
+					double x = xs[i], y = ys[i];
+					double rh = ProjectionMath.distance(x, y);
+					double c = 2. * Math.atan(rh / akm1);
+					double sinc = Math.sin(c), cosc = Math.cos(c);
+					double phi = Math.abs(rh) <= EPS10 ? phi0 : Math.asin(cosc * sinphi0 + y * sinc * cosphi0 / rh);
+					c = cosc - sinphi0 * Math.sin(phi);
+					ys[i] = phi;
+					xs[i] = c != 0. || x != 0. ? Math.atan2(x * sinc * cosphi0, c * rh) : 0.;
+				}
+				break;
+			case NORTH_POLE:
+			case SOUTH_POLE:
+				double pole = projectionLatitude;
+				double sign = mode == SOUTH_POLE ? -1. : 1.;
+				for (int i = off; i < end; i++) {
+					double x = xs[i], y = -sign * ys[i];
+					double rh = ProjectionMath.distance(x, y);
+					double cosc = Math.cos(2. * Math.atan(rh / akm1));
+					ys[i] = Math.abs(rh) <= EPS10 ? pole : Math.asin(sign * cosc);
+					xs[i] = x == 0. && y == 0. ? 0. : Math.atan2(x, y);
+				}
+				break;
+			}
+		} else {
+			double e = this.e;
+			switch (mode) {
+			case OBLIQUE:
+			case EQUATOR:
+				for (int i = off; i < end; i++) {
+					double x = xs[i], y = ys[i];
+					double rho = ProjectionMath.distance(x, y);
+					double tp = 2. * Math.atan2(rho * cosphi0, akm1);
+					double cosphi = Math.cos(tp), sinphi = Math.sin(tp);
+					double phi_l = rho <= 0 ? Math.asin(cosphi * sinphi0) :
+						Math.asin(cosphi * sinphi0 + (y * sinphi * cosphi0 / rho));
+					tp = Math.tan(.5 * (ProjectionMath.HALFPI + phi_l));
+					x *= sinphi;
+					y = rho * cosphi0 * cosphi - y * sinphi0 * sinphi;
+					ys[i] = latitude(tp, phi_l, .5 * e, ProjectionMath.HALFPI);
+					xs[i] = x == 0. && y == 0. ? 0. : Math.atan2(x, y);
+				}
+				break;
+			case NORTH_POLE:
+			case SOUTH_POLE:
+				double sign = mode == SOUTH_POLE ? -1. : 1.;
+				for (int i = off; i < end; i++) {
+					double x = xs[i], y = ys[i];
+					double rho = ProjectionMath.distance(x, y);
+					if (mode == NORTH_POLE)
+						y = -y;
+					double tp = - rho / akm1;
+					double phi_l = ProjectionMath.HALFPI - 2. * Math.atan(tp);
+					ys[i] = sign * latitude(tp, phi_l, -.5 * e, -ProjectionMath.HALFPI);
+					xs[i] = x == 0. && y == 0. ? 0. : Math.atan2(x, y);
+				}
+				break;
+			}
+		}
+	}
+
+	// the iteration of the ellipsoidal inverse
+	private double latitude(double tp, double phi_l, double halfe, double halfpi) {
+		for (int i = 8; i-- != 0; ) {
+			double sinphi = e * Math.sin(phi_l);
+			double phi = 2. * Math.atan(tp * Math.pow((1.+sinphi)/(1.-sinphi), halfe)) - halfpi;
+			if (Math.abs(phi_l - phi) < EPS10)
+				return phi;
+			phi_l = phi;
+		}
+		throw new ConvergenceFailureException("Iteration didn't converge");
+	}
+
 	/**
 	 * Returns true if this projection is conformal
 	 */
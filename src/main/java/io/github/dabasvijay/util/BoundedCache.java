@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.dabasvijay.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.github.dabasvijay.Proj4jException;
+
+/**
+ * A thread-safe cache holding at most a given number of entries,
+ * releasing the least recently used entry when it is full.
+ * <p>
+ * Values are created by a {@link Loader} when a key is first requested.
+ * Threads requesting a key while it is being loaded wait for that load
+ * rather than loading it again.
+ * A loader may return <tt>null</tt> or throw an exception for keys it cannot load;
+ * this is remembered for a limited time, after which the key is loaded again.
+ * Each request for a key which failed throws a new exception caused by the loader's,
+ * rather than the loader's itself.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public final class BoundedCache<K, V> {
+
+    /**
+     * Creates the values of a {@link BoundedCache}.
+     */
+    public interface Loader<K, V> {
+
+        /**
+         * Creates the value for a key.
+         *
+         * @return the value, or <tt>null</tt> if there is none
+         */
+        V load(K key);
+    }
+
+    private final int maxSize;
+    private final long negativeTtlNanos;
+
+    // guarded by itself
+    private final Map<K, Cached<V>> entries;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong loadTime = new AtomicLong();
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxSize     the maximum number of entries
+     * @param negativeTtl how long to remember that a key could not be loaded, or 0 not to remember it
+     * @param unit        the unit of <tt>negativeTtl</tt>
+     */
+    public BoundedCache(final int maxSize, long negativeTtl, TimeUnit unit) {
+        if (maxSize < 1) throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        if (negativeTtl < 0) throw new IllegalArgumentException("Negative TTL must not be negative: " + negativeTtl);
+        this.maxSize = maxSize;
+        this.negativeTtlNanos = unit.toNanos(negativeTtl);
+        this.entries = new LinkedHashMap<K, Cached<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Cached<V>> eldest) {
+                if (size() <= maxSize) return false;
+                evictionCount.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Gets the value for a key, loading it if it is not cached.
+     *
+     * @return the value, or <tt>null</tt> if the loader has none
+     * @throws RuntimeException a new exception of the type thrown by the loader, caused by it;
+     *                          a {@link Proj4jException} if that type can't be created from a message
+     */
+    public V get(final K key, final Loader<? super K, ? extends V> loader) {
+        Cached<V> entry;
+        boolean load = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expires - System.nanoTime() < 0) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Cached<V>(new Callable<V>() {
+                    @Override
+                    public V call() {
+                        return loader.load(key);
+                    }
+                });
+                entries.put(key, entry);
+                load = true;
+            }
+        }
+
+        if (load) {
+            missCount.incrementAndGet();
+            load(key, entry);
+        } else {
+            hitCount.incrementAndGet();
+        }
+
+        try {
+            return entry.task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw copy((RuntimeException) e.getCause());
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new Proj4jException("Unable to load " + key + ": " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Proj4jException("Interrupted while loading " + key);
+        }
+    }
+
+    // a new exception of the same type for each caller, caused by the loader's,
+    // so that callers don't share a stack trace or suppressed exceptions
+    private static RuntimeException copy(RuntimeException failure) {
+        RuntimeException copy;
+        try {
+            copy = failure.getClass().getConstructor(String.class).newInstance(failure.getMessage());
+        } catch (ReflectiveOperationException e) {
+            copy = new Proj4jException(failure.getMessage());
+        }
+        try {
+            copy.initCause(failure);
+        } catch (IllegalStateException e) {
+            // the constructor set the cause
+        }
+        return copy;
+    }
+
+    private void load(K key, Cached<V> entry) {
+        long start = System.nanoTime();
+        entry.task.run();
+        long end = System.nanoTime();
+        loadTime.addAndGet(end - start);
+
+        V value = null;
+        Throwable failure = null;
+        try {
+            value = entry.task.get();
+        } catch (ExecutionException e) {
+            failure = e.getCause();
+        } catch (InterruptedException e) {
+            // the task has already run, so this can't happen
+            Thread.currentThread().interrupt();
+        }
+        if (value != null) return;
+
+        // errors are not remembered, as they are not the fault of the key
+        if (negativeTtlNanos > 0 && !(failure instanceof Error)) {
+            entry.expires = end + negativeTtlNanos;
+        } else {
+            synchronized (entries) {
+                if (entries.get(key) == entry) entries.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Adds a value to the cache, replacing any value for the key.
+     */
+    public void put(K key, final V value) {
+        Cached<V> entry = new Cached<V>(new Callable<V>() {
+            @Override
+            public V call() {
+                return value;
+            }
+        });
+        entry.task.run();
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Removes all the entries from the cache.  The counters are not reset.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Gets the number of entries in the cache, including those being loaded.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Gets the number of requests answered by a cached entry, or by waiting for another thread to load it.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of requests which loaded their value.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of entries released to stay within the maximum size.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Gets the total time spent loading values, in nanoseconds.
+     */
+    public long getTotalLoadTime() {
+        return loadTime.get();
+    }
+
+    private static final class Cached<V> {
+        final FutureTask<V> task;
+        // when a failure to load stops being remembered, in System.nanoTime terms
+        volatile long expires;
+
+        Cached(Callable<V> loader) {
+            this.task = new FutureTask<V>(loader);
+            // an entry which loads successfully never expires; the sign is only compared after subtracting
+            this.expires = System.nanoTime() + Long.MAX_VALUE;
+        }
+    }
+}
@@ -19,63 +19,114 @@ import io.github.dabasvijay.*;
 
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the coordinate reference systems created by a {@link CRSFactory}, and EPSG codes looked up from parameters.
+ * <p>
+ * The caches hold a bounded number of entries, releasing the least recently used.
+ * Threads requesting the same missing entry at once wait for a single thread to create it.
+ * Names and parameters which can't be used are remembered for a limited time,
+ * so repeated requests for them don't repeat the work.
+ */
 public class CRSCache {
+    /**
+     * The default maximum number of entries in each cache
+     */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    /**
+     * The default time for which failures are remembered, in milliseconds
+     */
+    public static final long DEFAULT_NEGATIVE_TTL = 60000;
+
     private static CRSFactory crsFactory = new CRSFactory();
 
-    private ConcurrentHashMap<String, CoordinateReferenceSystem> crsCache;
-    private ConcurrentHashMap<String, String> epsgCache;
+    private final BoundedCache<String, CoordinateReferenceSystem> crsCache;
+    private final BoundedCache<String, String> epsgCache;
 
     public CRSCache() {
-        crsCache = new ConcurrentHashMap<>();
-        epsgCache = new ConcurrentHashMap<>();
+        this(DEFAULT_MAX_SIZE, DEFAULT_NEGATIVE_TTL, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * Creates a cache.
+     *
+     * @param maxSize     the maximum number of entries in each of the caches
+     * @param negativeTtl how long to remember names and parameters which can't be used, or 0 not to remember them
+     * @param unit        the unit of <tt>negativeTtl</tt>
+     */
+    public CRSCache(int maxSize, long negativeTtl, TimeUnit unit) {
+        crsCache = new BoundedCache<>(maxSize, negativeTtl, unit);
+        epsgCache = new BoundedCache<>(maxSize, negativeTtl, unit);
+    }
+
+    /**
+     * Creates a cache holding the entries of the given maps.
+     * The maps are only read, as the cache keeps its own bounded storage.
+     *
+     * @deprecated use {@link #CRSCache(int, long, TimeUnit)}
+     */
+    @Deprecated
     public CRSCache(ConcurrentHashMap<String, CoordinateReferenceSystem> crsCache, ConcurrentHashMap<String, String> epsgCache) {
-        this.crsCache = crsCache;
-        this.epsgCache = epsgCache;
+        this(Math.max(DEFAULT_MAX_SIZE, Math.max(crsCache.size(), epsgCache.size())),
+                DEFAULT_NEGATIVE_TTL, TimeUnit.MILLISECONDS);
+        for (Map.Entry<String, CoordinateReferenceSystem> entry : crsCache.entrySet()) {
+            this.crsCache.put(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, String> entry : epsgCache.entrySet()) {
+            this.epsgCache.put(entry.getKey(), entry.getValue());
+        }
     }
 
     public CoordinateReferenceSystem createFromName(String name)
             throws UnsupportedParameterException, InvalidValueException, UnknownAuthorityCodeException {
-        CoordinateReferenceSystem res = crsCache.get(name);
-        if(res != null) return res;
-        return computeIfAbsent(name, crsCache,  crsFactory.createFromName(name));
-
+        return crsCache.get(name, new BoundedCache.Loader<String, CoordinateReferenceSystem>() {
+            @Override
+            public CoordinateReferenceSystem load(String name) {
+                return crsFactory.createFromName(name);
+            }
+        });
     }
 
-    public CoordinateReferenceSystem createFromParameters(String name, String paramStr)
+    public CoordinateReferenceSystem createFromParameters(final String name, final String paramStr)
             throws UnsupportedParameterException, InvalidValueException {
-        String nonNullName = name == null ? "" : name;
-        String key = nonNullName + paramStr;
-        CoordinateReferenceSystem res = crsCache.get(key);
-        if(res != null) return res;
-        return computeIfAbsent(key, crsCache,  crsFactory.createFromParameters(name, paramStr));
-    }
-    private CoordinateReferenceSystem  computeIfAbsent(final String key, ConcurrentHashMap<String, CoordinateReferenceSystem> map, final CoordinateReferenceSystem newValue ) {
-        CoordinateReferenceSystem v = map.get(key);
-        if (v == null) {
-            v = (v = map.putIfAbsent(key, newValue)) == null ? newValue : v;
-        }
-        return v;
+        return crsCache.get(parametersKey(name, paramStr), new BoundedCache.Loader<String, CoordinateReferenceSystem>() {
+            @Override
+            public CoordinateReferenceSystem load(String key) {
+                return crsFactory.createFromParameters(name, paramStr);
+            }
+        });
     }
 
-    public CoordinateReferenceSystem createFromParameters(String name, String[] params)
+    public CoordinateReferenceSystem createFromParameters(final String name, final String[] params)
             throws UnsupportedParameterException, InvalidValueException {
-        String nonNullName = name == null ? "" : name;
-        String key = nonNullName + String.join(" ", params);
-        CoordinateReferenceSystem res = crsCache.get(key);
-        if(res != null) return res;
-        return computeIfAbsent(key, crsCache,  crsFactory.createFromParameters(name, params));
+        return crsCache.get(parametersKey(name, String.join(" ", params)), new BoundedCache.Loader<String, CoordinateReferenceSystem>() {
+            @Override
+            public CoordinateReferenceSystem load(String key) {
+                return crsFactory.createFromParameters(name, params);
+            }
+        });
+    }
 
+    private static String parametersKey(String name, String paramStr) {
+        // keep keys for parameters apart from names, which never contain a '+'
+        String nonNullName = name == null ? "" : name;
+        return nonNullName + "+" + paramStr;
     }
 
     public String readEpsgFromParameters(String paramStr) {
-        String res = epsgCache.get(paramStr);
-        if(res != null) return res;
-        final String newValue = readWithException(crsFactory, paramStr);
-        return computeIfAbsentWithTry(paramStr, epsgCache, newValue);
+        return epsgCache.get(paramStr, new BoundedCache.Loader<String, String>() {
+            @Override
+            public String load(String paramStr) {
+                return readWithException(crsFactory, paramStr);
+            }
+        });
+    }
+
+    public String readEpsgFromParameters(String[] params) {
+        return readEpsgFromParameters(String.join(" ", params));
     }
 
     private String readWithException(final CRSFactory crsFactory, final String paramStr) {
@@ -84,24 +135,33 @@ public class CRSCache {
         } catch (IOException e) {
             return null;
         }
+    }
 
+    /**
+     * Gets the number of requests answered from the caches.
+     */
+    public long getHitCount() {
+        return crsCache.getHitCount() + epsgCache.getHitCount();
+    }
 
-
+    /**
+     * Gets the number of requests which created a coordinate reference system or looked up an EPSG code.
+     */
+    public long getMissCount() {
+        return crsCache.getMissCount() + epsgCache.getMissCount();
     }
 
-    private String  computeIfAbsentWithTry(final String key, ConcurrentHashMap<String, String> map, final String newValue ) {
-        String v = map.get(key);
-        if (v == null) {
-            v = (v = map.putIfAbsent(key, newValue)) == null ? newValue : v;
-        }
-        return v;
+    /**
+     * Gets the number of entries released to keep the caches within their maximum size.
+     */
+    public long getEvictionCount() {
+        return crsCache.getEvictionCount() + epsgCache.getEvictionCount();
     }
 
-    public String readEpsgFromParameters(String[] params) {
-        String paramStr = String.join(" ", params);
-        String res = epsgCache.get(paramStr);
-        if(res != null) return res;
-        final String newValue = readWithException(crsFactory, paramStr);
-        return computeIfAbsentWithTry(paramStr, epsgCache, newValue);
+    /**
+     * Gets the total time spent creating coordinate reference systems and looking up EPSG codes, in nanoseconds.
+     */
+    public long getTotalLoadTime() {
+        return crsCache.getTotalLoadTime() + epsgCache.getTotalLoadTime();
     }
 }
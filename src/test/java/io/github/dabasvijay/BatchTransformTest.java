@@ -0,0 +1,398 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package io.github.dabasvijay;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import io.github.dabasvijay.datum.GeocentricConverter;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that transforming arrays of coordinates gives the same
+ * results as transforming the coordinates one at a time.
+ */
+public class BatchTransformTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    private static final double[] LONS = {-2.89, 0.899167, -7.84, 1.0, -3.1683134533969364};
+    private static final double[] LATS = {55.4, 51.357216, 39.58, 50.0, 56.0998025292667};
+
+    private final CRSFactory crsFactory = new CRSFactory();
+    private final CoordinateTransformFactory ctFactory = new CoordinateTransformFactory();
+
+    @Test
+    public void testProjected() {
+        checkBatch("EPSG:4326", "EPSG:3857", LONS, LATS);
+        checkBatch("EPSG:4326", "EPSG:27700", LONS, LATS);
+        checkBatch("EPSG:4326", "EPSG:2056", new double[]{7.4, 8.23}, new double[]{46.9, 46.82});
+    }
+
+    @Test
+    public void testProjectionBatches() {
+        String[] projections = {
+                "EPSG:3395", "EPSG:32630",
+                "+proj=merc +lon_0=10 +a=6371000 +b=6371000",
+                "+proj=cea +lat_ts=30 +ellps=WGS84",
+                "+proj=cea +a=6371000 +b=6371000",
+                "+proj=mill +lon_0=-5 +a=6371000 +b=6371000",
+                "+proj=eqc +lon_0=5 +ellps=WGS84",
+                "+proj=tmerc +lon_0=-3 +a=6371000 +b=6371000",
+                "+proj=etmerc +lon_0=-3 +ellps=WGS84",
+                "EPSG:2154",
+                "+proj=lcc +lat_1=40 +lat_2=60 +lon_0=-5 +a=6371000 +b=6371000",
+                "+proj=aea +lat_1=45 +lat_2=58 +lon_0=-3 +ellps=GRS80",
+                "+proj=aea +lat_1=-45 +lat_2=-58 +lon_0=-3 +a=6371000 +b=6371000",
+                "+proj=leac +lat_1=45 +ellps=GRS80",
+                "+proj=eqdc +lat_1=20 +lat_2=60 +lon_0=-3 +ellps=WGS84",
+                "+proj=eqdc +lat_1=-30 +lat_2=-60 +a=6371000 +b=6371000",
+                "EPSG:3035", "EPSG:3413",
+                "+proj=stere +lat_0=-90 +lat_ts=-71 +lon_0=0 +a=6371000 +b=6371000",
+                "+proj=stere +lat_0=52 +lon_0=5 +ellps=WGS84",
+                "+proj=ortho +lat_0=52 +lon_0=0 +a=6371000 +b=6371000",
+                "+proj=gnom +lat_0=90 +lon_0=0 +a=6371000 +b=6371000",
+                "+proj=laea +lat_0=0 +lon_0=0 +a=6371000 +b=6371000",
+                "+proj=aeqd +lat_0=90 +lon_0=0 +ellps=WGS84",
+                "+proj=aeqd +lat_0=52 +lon_0=0 +a=6371000 +b=6371000",
+                "+proj=moll +lon_0=30 +a=6371000 +b=6371000",
+                "+proj=wag4 +ellps=WGS84",
+                "+proj=eck4 +a=6371000 +b=6371000",
+                "+proj=eck6 +a=6371000 +b=6371000",
+                "+proj=hatano +a=6371000 +b=6371000",
+                "+proj=nell +a=6371000 +b=6371000",
+                "+proj=mbtfpq +a=6371000 +b=6371000",
+                "+proj=mbt_fps +a=6371000 +b=6371000",
+                "+proj=putp2 +a=6371000 +b=6371000",
+                "+proj=geocent +datum=WGS84"
+        };
+        for (String projection : projections) {
+            checkBatch("EPSG:4326", projection, LONS, LATS);
+
+            double[] xs = LONS.clone();
+            double[] ys = LATS.clone();
+            createTransform("EPSG:4326", projection).transform(xs, ys, null, 0, xs.length);
+            checkBatch(projection, "EPSG:4326", xs, ys);
+        }
+        // no inverse
+        checkBatch("EPSG:4326", "+proj=boggs +a=6371000 +b=6371000", LONS, LATS);
+    }
+
+    @Test
+    public void testOutOfDomain() {
+        // eastings more than 150 degrees of the sphere from the central meridian have no inverse
+        String etmerc = "+proj=etmerc +ellps=WGS84";
+        double[] xs = {5e5, 3e7, -3e7};
+        double[] ys = {5e6, 0, 1e6};
+        checkBatch(etmerc, "EPSG:4326", xs, ys);
+        CoordinateTransform trans = createTransform(etmerc, "EPSG:4326");
+        ProjCoordinate pt = trans.transform(new ProjCoordinate(xs[1], ys[1]), new ProjCoordinate());
+        assertTrue(Double.isNaN(pt.x) && Double.isNaN(pt.y));
+    }
+
+    @Test
+    public void testAzimuthalAspects() {
+        String sphere = "+a=6371000 +b=6371000";
+        String ellipsoid = "+ellps=WGS84";
+        // polar, equatorial and oblique aspects, each with the centre and random points
+        double[][] centres = {{0, 90}, {0, -90}, {10, 0}, {5, 52}, {140, -35}};
+        for (String projection : new String[]{"stere", "ortho", "gnom", "laea", "aeqd"}) {
+            for (double[] centre : centres) {
+                for (String shape : new String[]{sphere, ellipsoid}) {
+                    // the orthographic and gnomonic projections are only defined on the sphere
+                    if (shape.equals(ellipsoid) && (projection.equals("ortho") || projection.equals("gnom")))
+                        continue;
+                    checkBatchAspect("+proj=" + projection + " +lat_0=" + centre[1] + " +lon_0=" + centre[0]
+                            + " +x_0=1000 +y_0=-2000 " + shape, shape, centre);
+                }
+            }
+        }
+        checkBatchAspect("+proj=stere +lat_0=90 +lat_ts=70 +lon_0=-45 " + ellipsoid, ellipsoid, new double[]{-45, 90});
+        checkBatchAspect("+proj=stere +lat_0=-90 +lat_ts=-71 +lon_0=0 " + ellipsoid, ellipsoid, new double[]{0, -90});
+        checkBatchAspect("+proj=stere +lat_0=90 +lat_ts=70 +lon_0=-45 " + sphere, sphere, new double[]{-45, 90});
+        checkBatchAspect("EPSG:3035", ellipsoid, new double[]{10, 52});
+        checkBatchAspect("EPSG:3573", ellipsoid, new double[]{-100, 90});
+        checkBatchAspect("EPSG:32661", ellipsoid, new double[]{0, 90});
+        checkBatchAspect("EPSG:32761", ellipsoid, new double[]{0, -90});
+    }
+
+    @Test
+    public void testProjectedToProjected() {
+        checkBatch("EPSG:27700", "EPSG:3857",
+                new double[]{327420.988668, 343642.04, 612435.55},
+                new double[]{690284.547110, 612147.04, 1234954.16});
+    }
+
+    @Test
+    public void testGridShift() {
+        checkBatch("+proj=latlong +datum=NAD27", "+proj=latlong +datum=NAD83",
+                new double[]{-79.0, -100.0, -75.5}, new double[]{35.0, 45.0, 47.0});
+        checkBatch("+proj=latlong +datum=NAD83", "+proj=latlong +datum=NAD27",
+                new double[]{-79.0, -100.0, -75.5}, new double[]{35.0, 45.0, 47.0});
+    }
+
+    @Test
+    public void testAxisOrderAndPrimeMeridian() {
+        checkBatch("+proj=longlat +datum=WGS84 +axis=neu",
+                "+proj=utm +zone=31 +datum=WGS84 +pm=paris +axis=wsu",
+                LATS, LONS);
+    }
+
+    @Test
+    public void testOffsetAndHeights() {
+        CoordinateTransform trans = createTransform(
+                "+proj=latlong +ellps=bessel +towgs84=5,0,0",
+                "+proj=latlong +ellps=bessel +towgs84=1,0,0");
+        double[] xs = {99, -79.0, 10.0, 99};
+        double[] ys = {99, 45.0, 20.0, 99};
+        double[] zs = {99, 0.0, 100.0, 99};
+
+        trans.transform(xs, ys, zs, 1, 2);
+
+        assertEquals(99, xs[0], 0);
+        assertEquals(99, xs[3], 0);
+        for (int i = 1; i < 3; i++) {
+            ProjCoordinate expected = new ProjCoordinate();
+            trans.transform(new ProjCoordinate(i == 1 ? -79.0 : 10.0, i == 1 ? 45.0 : 20.0, i == 1 ? 0.0 : 100.0), expected);
+            assertEquals(expected.x, xs[i], TOLERANCE);
+            assertEquals(expected.y, ys[i], TOLERANCE);
+            assertEquals(expected.z, zs[i], TOLERANCE);
+        }
+    }
+
+    @Test
+    public void testParallel() {
+        checkParallel("EPSG:4326", "EPSG:27700");
+        checkParallel("+proj=latlong +datum=NAD27", "+proj=latlong +datum=NAD83");
+    }
+
+    @Test
+    public void testHelmertPair() {
+        String bessel = "+proj=longlat +ellps=bessel +towgs84=598.1,73.7,418.2,0.202,0.045,-2.455,6.7";
+        String intl = "+proj=longlat +ellps=intl +towgs84=-87,-98,-121,0.1,0.2,0.3,1.5";
+        CoordinateReferenceSystem src = createCRS(bessel);
+        CoordinateReferenceSystem tgt = createCRS(intl);
+        CoordinateTransform trans = ctFactory.createTransform(src, tgt);
+
+        // the fused shifts agree with applying the shift of each datum in turn
+        GeocentricConverter srcConverter = new GeocentricConverter(src.getDatum().getEllipsoid());
+        GeocentricConverter tgtConverter = new GeocentricConverter(tgt.getDatum().getEllipsoid());
+        for (int i = 0; i < LONS.length; i++) {
+            // the transform drops the height of its input
+            ProjCoordinate expected = new ProjCoordinate(Math.toRadians(LONS[i]), Math.toRadians(LATS[i]), 0);
+            srcConverter.convertGeodeticToGeocentric(expected);
+            src.getDatum().transformFromGeocentricToWgs84(expected);
+            tgt.getDatum().transformToGeocentricFromWgs84(expected);
+            tgtConverter.convertGeocentricToGeodetic(expected);
+
+            ProjCoordinate actual = trans.transform(new ProjCoordinate(LONS[i], LATS[i], 100), new ProjCoordinate());
+            assertEquals(Math.toDegrees(expected.x), actual.x, 1e-12);
+            assertEquals(Math.toDegrees(expected.y), actual.y, 1e-12);
+            assertEquals(expected.z, actual.z, 1e-6);
+        }
+        checkBatch(bessel, intl, LONS, LATS);
+
+        // shifts which cancel out leave the points as they are
+        trans = createTransform("+proj=longlat +ellps=bessel +towgs84=1,2,3",
+                "+proj=longlat +ellps=bessel +towgs84=1,2,3,0,0,0,0");
+        ProjCoordinate pt = trans.transform(new ProjCoordinate(LONS[0], LATS[0]), new ProjCoordinate());
+        assertEquals(LONS[0], pt.x, 0);
+        assertEquals(LATS[0], pt.y, 0);
+    }
+
+    @Test
+    public void testStatus() {
+        // a valid point, one off the far side of the globe, unparseable input and a point no projection can handle
+        double[] xs = {1, 1e7, Double.NaN, 1, 2};
+        double[] ys = {1, 1e7, 0, 1e30, 1};
+        checkStatus("+proj=ortho +lat_0=52 +lon_0=0", "EPSG:4326", xs, ys,
+                TransformStatus.OK, TransformStatus.PROJECTION_FAILED, TransformStatus.INVALID_VALUE,
+                TransformStatus.PROJECTION_FAILED, TransformStatus.OK);
+        // the far side projects to NaN, and a latitude beyond the pole fails the datum shift
+        checkStatus("EPSG:4326", "+proj=ortho +lat_0=52 +lon_0=0", new double[]{0, 180, 0}, new double[]{52, 0, 0},
+                TransformStatus.OK, TransformStatus.FAILED, TransformStatus.OK);
+        checkStatus("EPSG:4326", "EPSG:27700", new double[]{-2, 0, -3}, new double[]{52, 95, 55},
+                TransformStatus.OK, TransformStatus.FAILED, TransformStatus.OK);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testInvalidRange() {
+        CoordinateTransform trans = createTransform("EPSG:4326", "EPSG:3857");
+        trans.transform(new double[2], new double[2], null, 1, 2);
+    }
+
+    private CoordinateTransform createTransform(String src, String tgt) {
+        return ctFactory.createTransform(createCRS(src), createCRS(tgt));
+    }
+
+    private CoordinateReferenceSystem createCRS(String name) {
+        if (name.startsWith("+"))
+            return crsFactory.createFromParameters(null, name);
+        return crsFactory.createFromName(name);
+    }
+
+    private void checkParallel(String src, String tgt) {
+        CoordinateTransform trans = createTransform(src, tgt);
+        int n = 20000;
+        double[] xs = new double[n + 2];
+        double[] ys = new double[n + 2];
+        for (int i = 0; i < n + 2; i++) {
+            xs[i] = -4 + 0.0002 * i;
+            ys[i] = 52 + 0.0001 * i;
+        }
+        double[] px = xs.clone();
+        double[] py = ys.clone();
+        trans.transform(xs, ys, null, 1, n);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new ParallelCoordinateTransform(trans, pool, 1000, 777).transform(px, py, null, 1, n);
+        } finally {
+            pool.shutdown();
+        }
+        for (int i = 0; i < n + 2; i++) {
+            assertEquals(src + " => " + tgt, xs[i], px[i], 0);
+            assertEquals(src + " => " + tgt, ys[i], py[i], 0);
+        }
+    }
+
+    private void checkStatus(String src, String tgt, double[] xs, double[] ys, byte... expected) {
+        BasicCoordinateTransform trans = (BasicCoordinateTransform) createTransform(src, tgt);
+        double[] bx = xs.clone();
+        double[] by = ys.clone();
+        byte[] status = new byte[xs.length];
+        int failures = trans.transform(bx, by, null, 0, xs.length, status);
+
+        // the same points spread over a batch large enough to run in parallel
+        int n = 100 * xs.length;
+        double[] px = new double[n];
+        double[] py = new double[n];
+        for (int i = 0; i < n; i++) {
+            px[i] = xs[i % xs.length];
+            py[i] = ys[i % ys.length];
+        }
+        byte[] pstatus = new byte[n];
+        int pfailures;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            pfailures = new ParallelCoordinateTransform(trans, pool, 100, 7).transform(px, py, null, 0, n, pstatus);
+        } finally {
+            pool.shutdown();
+        }
+
+        int expectedFailures = 0;
+        for (int i = 0; i < xs.length; i++) {
+            String point = src + " => " + tgt + " at " + xs[i] + ", " + ys[i];
+            assertEquals(point, TransformStatus.toString(expected[i]), TransformStatus.toString(status[i]));
+            if (expected[i] == TransformStatus.OK) {
+                ProjCoordinate pt = trans.transform(new ProjCoordinate(xs[i], ys[i]), new ProjCoordinate());
+                assertEquals(point, pt.x, bx[i], 0);
+                assertEquals(point, pt.y, by[i], 0);
+            } else {
+                expectedFailures++;
+                assertTrue(point, Double.isNaN(bx[i]) && Double.isNaN(by[i]));
+            }
+        }
+        assertEquals(expectedFailures, failures);
+
+        assertEquals(100 * failures, pfailures);
+        for (int i = 0; i < n; i++) {
+            int j = i % xs.length;
+            assertEquals(status[j], pstatus[i]);
+            assertEquals(bx[j], px[i], 0);
+            assertEquals(by[j], py[i], 0);
+        }
+    }
+
+    /**
+     * Checks that a projection gives bit-identical results in batches, forwards and inverse,
+     * for its centre and random points it can project.
+     */
+    private void checkBatchAspect(String projection, String shape, double[] centre) {
+        String geographic = "+proj=longlat " + shape;
+        CoordinateTransform forward = createTransform(geographic, projection);
+        CoordinateTransform inverse = createTransform(projection, geographic);
+        Random random = new Random(7);
+        int n = 200;
+        double[] lons = new double[n];
+        double[] lats = new double[n];
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        int count = 0;
+        for (int k = 0; count < n && k < 50 * n; k++) {
+            double lon, lat;
+            if (k == 0) {
+                lon = centre[0];
+                lat = centre[1];
+            } else if (k % 2 == 0) {
+                // near the centre, where most points are in range
+                lon = centre[0] + (random.nextDouble() - 0.5) * 120;
+                lat = centre[1] + (random.nextDouble() - 0.5) * 120;
+            } else {
+                lon = (random.nextDouble() - 0.5) * 360;
+                lat = (random.nextDouble() - 0.5) * 180;
+            }
+            if (lat > 90 || lat < -90) continue;
+            ProjCoordinate p;
+            try {
+                p = forward.transform(new ProjCoordinate(lon, lat), new ProjCoordinate());
+                if (Double.isNaN(p.x) || Double.isNaN(p.y)) continue;
+                inverse.transform(new ProjCoordinate(p.x, p.y), new ProjCoordinate());
+            } catch (Proj4jException e) {
+                continue;
+            }
+            lons[count] = lon;
+            lats[count] = lat;
+            xs[count] = p.x;
+            ys[count] = p.y;
+            count++;
+        }
+        assertTrue(projection, count > n / 2);
+        checkBatchIdentical(forward, projection, lons, lats, count);
+        checkBatchIdentical(inverse, projection + " inverse", xs, ys, count);
+    }
+
+    private void checkBatchIdentical(CoordinateTransform trans, String name, double[] xs, double[] ys, int count) {
+        double[] bx = xs.clone();
+        double[] by = ys.clone();
+        trans.transform(bx, by, null, 0, count);
+
+        for (int i = 0; i < count; i++) {
+            ProjCoordinate expected = trans.transform(new ProjCoordinate(xs[i], ys[i]), new ProjCoordinate());
+            String point = name + " at " + xs[i] + ", " + ys[i] + ": " + expected.x + ", " + expected.y
+                    + " one at a time, " + bx[i] + ", " + by[i] + " in a batch";
+            assertEquals(point, Double.doubleToLongBits(expected.x), Double.doubleToLongBits(bx[i]));
+            assertEquals(point, Double.doubleToLongBits(expected.y), Double.doubleToLongBits(by[i]));
+        }
+    }
+
+    private void checkBatch(String src, String tgt, double[] xs, double[] ys) {
+        CoordinateTransform trans = createTransform(src, tgt);
+        double[] bx = xs.clone();
+        double[] by = ys.clone();
+        trans.transform(bx, by, null, 0, xs.length);
+
+        for (int i = 0; i < xs.length; i++) {
+            ProjCoordinate expected = new ProjCoordinate();
+            trans.transform(new ProjCoordinate(xs[i], ys[i]), expected);
+            assertEquals(src + " => " + tgt, expected.x, bx[i], TOLERANCE);
+            assertEquals(src + " => " + tgt, expected.y, by[i], TOLERANCE);
+        }
+    }
+}
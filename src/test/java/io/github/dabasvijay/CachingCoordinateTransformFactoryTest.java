@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package io.github.dabasvijay;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class CachingCoordinateTransformFactoryTest {
+
+    private final CRSFactory crsFactory = new CRSFactory();
+
+    @Test
+    public void testSameDefinitionsShareTransform() {
+        CachingCoordinateTransformFactory factory = new CachingCoordinateTransformFactory();
+        CoordinateReferenceSystem wgs84 = crsFactory.createFromName("EPSG:4326");
+        CoordinateReferenceSystem bng = crsFactory.createFromName("EPSG:27700");
+
+        CoordinateTransform transform = factory.createTransform(wgs84, bng);
+        assertSame(transform, factory.createTransform(wgs84, bng));
+        // created again from the same definition
+        assertSame(transform, factory.createTransform(crsFactory.createFromName("EPSG:4326"), crsFactory.createFromName("EPSG:27700")));
+        assertEquals(1, factory.getMissCount());
+        assertEquals(2, factory.getHitCount());
+
+        assertNotSame(transform, factory.createTransform(bng, wgs84));
+        assertEquals(2, factory.size());
+
+        ProjCoordinate expected = new CoordinateTransformFactory().createTransform(wgs84, bng)
+                .transform(new ProjCoordinate(-1.5, 52.5), new ProjCoordinate());
+        ProjCoordinate actual = transform.transform(new ProjCoordinate(-1.5, 52.5), new ProjCoordinate());
+        assertEquals(expected.x, actual.x, 0);
+        assertEquals(expected.y, actual.y, 0);
+    }
+
+    @Test
+    public void testDifferentParametersDontShareTransform() {
+        CachingCoordinateTransformFactory factory = new CachingCoordinateTransformFactory();
+        CoordinateReferenceSystem wgs84 = crsFactory.createFromName("EPSG:4326");
+        CoordinateReferenceSystem omerc1 = crsFactory.createFromParameters("omerc",
+                "+proj=omerc +lat_0=4 +lonc=115 +alpha=53.3 +k=0.99984 +x_0=0 +y_0=0 +ellps=WGS84");
+        CoordinateReferenceSystem omerc2 = crsFactory.createFromParameters("omerc",
+                "+proj=omerc +lat_0=4 +lonc=115 +alpha=45 +k=0.99984 +x_0=0 +y_0=0 +ellps=WGS84");
+
+        CoordinateTransform first = factory.createTransform(wgs84, omerc1);
+        CoordinateTransform second = factory.createTransform(wgs84, omerc2);
+        assertNotSame(first, second);
+        assertEquals(2, factory.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedAreEvicted() {
+        CachingCoordinateTransformFactory factory = new CachingCoordinateTransformFactory(2);
+        CoordinateReferenceSystem wgs84 = crsFactory.createFromName("EPSG:4326");
+        CoordinateReferenceSystem[] targets = {
+                crsFactory.createFromName("EPSG:3857"),
+                crsFactory.createFromName("EPSG:27700"),
+                crsFactory.createFromName("EPSG:32633")
+        };
+        for (CoordinateReferenceSystem target : targets) {
+            factory.createTransform(wgs84, target);
+        }
+        assertEquals(2, factory.size());
+        assertEquals(1, factory.getEvictionCount());
+
+        factory.createTransform(wgs84, targets[2]);
+        assertEquals(1, factory.getHitCount());
+        factory.createTransform(wgs84, targets[0]);
+        assertEquals(4, factory.getMissCount());
+
+        factory.clear();
+        assertEquals(0, factory.size());
+    }
+}
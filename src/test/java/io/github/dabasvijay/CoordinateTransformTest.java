@@ -83,6 +83,12 @@ public class CoordinateTransformTest extends BaseCoordinateTransformTest {
         //    checkTransform("EPSG:4267", -142.0, 56.50833333333333,    "ESRI:26732", 500000.000,    916085.508, 0.1 );
     }
 
+    @Test
+    public void testNTv1GridShift() {
+        // from the PROJ ntv1_can.dat regression test
+        checkTransformAndInverse("+proj=latlong +datum=NAD27", -111, 50, "+proj=latlong +datum=NAD83", -111.000820, 50.000031, 1e-6, 1e-6);
+    }
+
     @Test
     public void testPROJ4_SPCS_NAD83() {
         checkTransform("EPSG:4269", -142.0, 56.50833333333333, "ESRI:102632", 1640416.667, 916074.825, 0.1);
@@ -156,6 +162,34 @@ public class CoordinateTransformTest extends BaseCoordinateTransformTest {
         checkTransformFromWGS84("EPSG:3005", -126.54, 54.15, 964813.103719, 1016486.305862);
         // # NAD83(CSRS) / BC Albers
         checkTransformFromWGS84("EPSG:3153", -127.0, 52.11, 931625.9111828626, 789252.646454557);
+        // spherical
+        checkTransformFromAndToGeo("+proj=aea +lat_1=29.5 +lat_2=45.5 +lon_0=-96 +a=6371000 +b=6371000",
+                -100.0, 40.0, -337531.500790, 4269566.990811, 0.001, 1e-9);
+    }
+
+    @Test
+    public void testEquidistantConic() {
+        checkTransformFromAndToGeo("+proj=eqdc +lat_1=20 +lat_2=60 +datum=WGS84",
+                10.0, 45.0, 740066.363678, 5025679.354345, 0.001, 1e-9);
+        checkTransformFromAndToGeo("+proj=eqdc +lat_1=20 +lat_2=60 +a=6371000 +b=6371000",
+                10.0, 45.0, 737830.114412, 5044364.888624, 0.001, 1e-9);
+    }
+
+    @Test
+    public void testPseudoCylindrical() {
+        checkTransformFromAndToGeo("+proj=nell +a=6400000 +b=6400000",
+                2.0, 1.0, 223385.132504696, 111698.236447187, 1e-6, 1e-9);
+        checkTransformFromAndToGeo("+proj=mbtfpq +a=6400000 +b=6400000",
+                2.0, 1.0, 209391.854738393, 119161.040199055, 1e-6, 1e-9);
+        checkTransformFromAndToGeo("+proj=mbt_fps +a=6400000 +b=6400000",
+                2.0, 1.0, 198798.176129850, 125512.017254531, 1e-6, 1e-9);
+        checkTransformFromAndToGeo("+proj=putp2 +a=6400000 +b=6400000",
+                2.0, 1.0, 211638.039634339, 117895.033043380, 1e-6, 1e-9);
+        checkTransformFromAndToGeo("+proj=moll +a=6400000 +b=6400000",
+                2.0, 1.0, 201113.698641813, 124066.283433860, 1e-6, 1e-9);
+        // close to the pole, where the iteration used to give up
+        checkTransformFromAndToGeo("+proj=moll +a=6400000 +b=6400000",
+                120.0, 89.8, 293273.752420, 9048293.743005, 1e-6, 1e-8);
     }
 
     @Test
@@ -230,6 +230,14 @@ public class ExampleTest {
         }
     }
 
+    @Test
+    public void epsgFromReorderedParametersTest() throws IOException {
+        CRSFactory csFactory = new CRSFactory();
+        Assert.assertEquals("32633", csFactory.readEpsgFromParameters("+proj=utm +zone=33 +datum=WGS84 +units=m +no_defs"));
+        Assert.assertEquals("32633", csFactory.readEpsgFromParameters(" +no_defs +units=m +datum=WGS84 +zone=33 +proj=utm"));
+        assertNull(csFactory.readEpsgFromParameters("+proj=utm +zone=99 +datum=WGS84"));
+    }
+
     private boolean isInTolerance(ProjCoordinate p, double x, double y, double tolerance) {
         /*
          * Compare result to expected, for test purposes
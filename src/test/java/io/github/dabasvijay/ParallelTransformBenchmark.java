@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package io.github.dabasvijay;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how batch transforms scale over threads with a {@link ParallelCoordinateTransform},
+ * doubling the number of threads up to the number of processors.
+ * <pre>
+ * java -cp target/classes:target/test-classes io.github.dabasvijay.ParallelTransformBenchmark [points] [source] [target]
+ * </pre>
+ */
+public class ParallelTransformBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int points = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+        String source = args.length > 1 ? args[1] : "EPSG:4326";
+        String target = args.length > 2 ? args[2] : "EPSG:27700";
+
+        CRSFactory crsFactory = new CRSFactory();
+        CoordinateTransform transform = new CoordinateTransformFactory().createTransform(
+                crsFactory.createFromName(source), crsFactory.createFromName(target));
+
+        double[] lons = new double[points];
+        double[] lats = new double[points];
+        for (int i = 0; i < points; i++) {
+            lons[i] = -4 + 4.0 * i / points;
+            lats[i] = 51 + 3.0 * (i % 1000) / 1000;
+        }
+        double[] xs = new double[points];
+        double[] ys = new double[points];
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d points, %s to %s, %d processors%n", points, source, target, processors);
+        double single = 0;
+        for (int threads = 1; ; threads = Math.min(2 * threads, processors)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            CoordinateTransform parallel = new ParallelCoordinateTransform(transform, pool,
+                    ParallelCoordinateTransform.DEFAULT_THRESHOLD, ParallelCoordinateTransform.DEFAULT_CHUNK_SIZE);
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                System.arraycopy(lons, 0, xs, 0, points);
+                System.arraycopy(lats, 0, ys, 0, points);
+                long start = System.nanoTime();
+                parallel.transform(xs, ys, null, 0, points);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            pool.shutdown();
+
+            double nsPerPoint = best / (double) points;
+            if (threads == 1) single = nsPerPoint;
+            System.out.printf("%3d threads %8.1f ns/point %8.2f Mpoints/s  speedup %5.2f%n",
+                    threads, nsPerPoint, 1e3 / nsPerPoint, single / nsPerPoint);
+            if (threads == processors) break;
+        }
+    }
+}
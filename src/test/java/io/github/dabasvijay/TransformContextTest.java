@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package io.github.dabasvijay;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TransformContextTest {
+
+    private final CRSFactory crsFactory = new CRSFactory();
+    private final CoordinateTransformFactory ctFactory = new CoordinateTransformFactory();
+
+    @Test
+    public void testGridCellsAreReused() {
+        BasicCoordinateTransform trans = createTransform("+proj=latlong +datum=NAD27", "+proj=latlong +datum=NAD83");
+        TransformContext context = new TransformContext();
+
+        // a track crossing a few cells of the conus grid, which has a quarter degree spacing
+        int n = 1000;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = -100 + 0.001 * i;
+            ys[i] = 40 + 0.0005 * i;
+        }
+        double[] bx = xs.clone();
+        double[] by = ys.clone();
+        trans.transform(bx, by, null, 0, n, context);
+        assertEquals(n, context.getPointCount());
+        assertTrue(context.getGridCellReads() < 20);
+
+        context.reset();
+        ProjCoordinate pt = new ProjCoordinate();
+        for (int i = 0; i < n; i++) {
+            trans.transform(new ProjCoordinate(xs[i], ys[i]), pt, context);
+            ProjCoordinate expected = trans.transform(new ProjCoordinate(xs[i], ys[i]), new ProjCoordinate());
+            assertEquals(expected.x, pt.x, 0);
+            assertEquals(expected.y, pt.y, 0);
+            assertEquals(expected.x, bx[i], 0);
+            assertEquals(expected.y, by[i], 0);
+        }
+        assertEquals(n, context.getPointCount());
+        assertTrue(context.getGridCellReads() < 20);
+        assertEquals(0, context.getFailureCount());
+    }
+
+    @Test
+    public void testErrorsAreRecorded() {
+        BasicCoordinateTransform trans = createTransform("+proj=ortho +lat_0=52 +lon_0=0", "EPSG:4326");
+        TransformContext context = new TransformContext();
+
+        double[] xs = {1, 1e7, Double.NaN, 2};
+        double[] ys = {1, 1e7, 0, 1};
+        byte[] status = new byte[xs.length];
+        assertEquals(2, trans.transform(xs, ys, null, 0, xs.length, status, context));
+        assertEquals(2, context.getFailureCount());
+        // the NaN point fails before the one off the globe, which is the last failure
+        assertEquals(TransformStatus.PROJECTION_FAILED, context.getLastStatus());
+        assertTrue(context.getLastError() instanceof ProjectionException);
+
+        context.clearError();
+        assertEquals(TransformStatus.OK, context.getLastStatus());
+        assertNull(context.getLastError());
+
+        try {
+            trans.transform(new ProjCoordinate(1e7, 1e7), new ProjCoordinate(), context);
+            fail();
+        } catch (ProjectionException e) {
+            assertSame(e, context.getLastError());
+        }
+        assertEquals(3, context.getFailureCount());
+        assertEquals(5, context.getPointCount());
+
+        context.reset();
+        assertEquals(0, context.getFailureCount());
+        assertEquals(0, context.getPointCount());
+    }
+
+    private BasicCoordinateTransform createTransform(String src, String tgt) {
+        return (BasicCoordinateTransform) ctFactory.createTransform(createCRS(src), createCRS(tgt));
+    }
+
+    private CoordinateReferenceSystem createCRS(String name) {
+        if (name.startsWith("+"))
+            return crsFactory.createFromParameters(null, name);
+        return crsFactory.createFromName(name);
+    }
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package io.github.dabasvijay.datum;
+
+import io.github.dabasvijay.CRSFactory;
+import io.github.dabasvijay.CoordinateReferenceSystem;
+import io.github.dabasvijay.CoordinateTransform;
+import io.github.dabasvijay.CoordinateTransformFactory;
+import io.github.dabasvijay.ProjCoordinate;
+
+/**
+ * Measures the startup cost of the {@link Datum} class, and of the first NAD27 grid shift.
+ * <p>
+ * Class initialization only happens once per JVM, so run this in a fresh JVM each time, eg.
+ * <pre>
+ * java -cp target/classes:target/test-classes io.github.dabasvijay.datum.DatumStartupBenchmark
+ * </pre>
+ */
+public class DatumStartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        long heap = usedHeap();
+        long start = System.nanoTime();
+        Class.forName("io.github.dabasvijay.datum.Datum", true, DatumStartupBenchmark.class.getClassLoader());
+        report("Datum class init", System.nanoTime() - start, usedHeap() - heap);
+
+        CRSFactory crsFactory = new CRSFactory();
+        heap = usedHeap();
+        start = System.nanoTime();
+        CoordinateReferenceSystem wgs84 = crsFactory.createFromParameters(null, "+proj=longlat +datum=WGS84");
+        CoordinateReferenceSystem utm = crsFactory.createFromParameters(null, "+proj=utm +zone=33 +datum=WGS84");
+        new CoordinateTransformFactory().createTransform(wgs84, utm)
+                .transform(new ProjCoordinate(15, 50), new ProjCoordinate());
+        report("First WGS84 transform", System.nanoTime() - start, usedHeap() - heap);
+
+        heap = usedHeap();
+        start = System.nanoTime();
+        CoordinateReferenceSystem nad27 = crsFactory.createFromParameters(null, "+proj=longlat +datum=NAD27");
+        CoordinateReferenceSystem nad83 = crsFactory.createFromParameters(null, "+proj=longlat +datum=NAD83");
+        CoordinateTransform trans = new CoordinateTransformFactory().createTransform(nad27, nad83);
+        ProjCoordinate result = new ProjCoordinate();
+        trans.transform(new ProjCoordinate(-100, 55), result);
+        report("First NAD27 grid shift", System.nanoTime() - start, usedHeap() - heap);
+        System.out.println("  " + result);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void report(String name, long nanos, long bytes) {
+        System.out.printf("%-24s %8.2f ms %10d KB%n", name, nanos / 1e6, bytes / 1024);
+    }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.dabasvijay.datum;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import io.github.dabasvijay.ProjCoordinate;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeocentricConverterTest {
+
+    private static final double LAT_TOLERANCE = 1e-14;
+    private static final double HEIGHT_TOLERANCE = 1e-7;
+
+    @Test
+    public void testMatchesIterative() {
+        Random random = new Random(42);
+        for (Ellipsoid ellipsoid : new Ellipsoid[]{Ellipsoid.WGS84, Ellipsoid.CLARKE_1866, Ellipsoid.AIRY}) {
+            GeocentricConverter converter = new GeocentricConverter(ellipsoid);
+            for (double maxHeight : new double[]{-1e4, 1e4, 1e6, 4e7, -5e6}) {
+                for (int i = 0; i < 10000; i++) {
+                    double lon = (2 * random.nextDouble() - 1) * Math.PI;
+                    double lat = (2 * random.nextDouble() - 1) * Math.PI / 2;
+                    check(converter, lon, lat, maxHeight * random.nextDouble());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSpecialPoints() {
+        GeocentricConverter converter = new GeocentricConverter(Ellipsoid.WGS84);
+        double[] lats = {0, Math.PI / 2, -Math.PI / 2, Math.PI / 2 - 1e-9, 1e-12};
+        double[] heights = {0, 8848, -430, 35786e3, -6e6};
+        for (double lat : lats) {
+            for (double height : heights) {
+                check(converter, 0, lat, height);
+                check(converter, 3, lat, height);
+            }
+        }
+
+        // the centre of the Earth
+        ProjCoordinate centre = new ProjCoordinate(0, 0, 0);
+        converter.convertGeocentricToGeodetic(centre);
+        assertEquals(Math.PI / 2, centre.y, 0);
+        assertEquals(-Ellipsoid.WGS84.getB(), centre.z, HEIGHT_TOLERANCE);
+
+        ProjCoordinate nan = new ProjCoordinate(Double.NaN, 0, 0);
+        converter.convertGeocentricToGeodetic(nan);
+        assertTrue(Double.isNaN(nan.y));
+    }
+
+    @Test
+    public void testOverriddenEllipsoid() {
+        GeocentricConverter converter = new GeocentricConverter(Ellipsoid.BESSEL);
+        converter.overrideWithWGS84Params();
+        check(converter, 0.1, 0.9, 100);
+        check(converter, -2, -1.2, 1e5);
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        GeocentricConverter converter = new GeocentricConverter(Ellipsoid.BESSEL);
+        converter.overrideWithWGS84Params();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(converter);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        GeocentricConverter copy = (GeocentricConverter) in.readObject();
+        in.close();
+
+        assertTrue(copy.isEqual(converter));
+        check(copy, 0.1, 0.9, 100);
+        check(copy, -2, -1.2, 1e5);
+    }
+
+    private static void check(GeocentricConverter converter, double lon, double lat, double height) {
+        ProjCoordinate geocentric = new ProjCoordinate(lon, lat, height);
+        converter.convertGeodeticToGeocentric(geocentric);
+
+        ProjCoordinate direct = new ProjCoordinate(geocentric.x, geocentric.y, geocentric.z);
+        converter.convertGeocentricToGeodeticNonIter(direct);
+        ProjCoordinate iterated = new ProjCoordinate(geocentric.x, geocentric.y, geocentric.z);
+        converter.convertGeocentricToGeodeticIter(iterated);
+
+        String point = lon + ", " + lat + ", " + height;
+        assertEquals(point, iterated.x, direct.x, LAT_TOLERANCE);
+        assertEquals(point, iterated.y, direct.y, LAT_TOLERANCE);
+        assertEquals(point, iterated.z, direct.z, HEIGHT_TOLERANCE);
+        // the direct conversion recovers the original point at least as well as the iteration does
+        assertTrue(point, Math.abs(direct.y - lat) <= Math.max(Math.abs(iterated.y - lat), LAT_TOLERANCE));
+        assertEquals(point, height, direct.z, HEIGHT_TOLERANCE * Math.max(1, Math.abs(height) / 1e6));
+    }
+}
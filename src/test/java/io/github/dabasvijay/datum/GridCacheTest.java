@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package io.github.dabasvijay.datum;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+
+import io.github.dabasvijay.ProjCoordinate;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GridCacheTest {
+
+    @Test
+    public void testGridsAreShared() throws IOException {
+        List<Grid> first = Grid.fromNadGrids("@ntv1_can.dat");
+        List<Grid> second = Grid.fromNadGrids("ntv1_can.dat,@null");
+        assertEquals(1, first.size());
+        assertEquals(2, second.size());
+        assertSame(first.get(0), second.get(0));
+    }
+
+    @Test
+    public void testReleasedTablesAreReloaded() throws IOException {
+        List<Grid> grids = Grid.fromNadGrids("ntv1_can.dat");
+        ProjCoordinate expected = shift(grids);
+
+        long loads = GridCache.getLoadCount();
+        long evictions = GridCache.getEvictionCount();
+        try {
+            GridCache.setMemoryBudget(0);
+            assertTrue(GridCache.getEvictionCount() > evictions);
+            assertEquals(0, GridCache.getLoadedBytes());
+
+            ProjCoordinate actual = shift(grids);
+            assertTrue(GridCache.getLoadCount() > loads);
+            assertEquals(expected.x, actual.x, 0);
+            assertEquals(expected.y, actual.y, 0);
+        } finally {
+            GridCache.setMemoryBudget(Long.MAX_VALUE);
+        }
+    }
+
+    @Test
+    public void testReleasedTablesAreNotKeptByInterpolators() throws IOException {
+        List<Grid> grids = Grid.fromNadGrids(writeCtable2(5, 5, 1).getPath());
+        // the thread's interpolator reads a cell from the table
+        ProjCoordinate expected = new ProjCoordinate(Math.toRadians(-78.5), Math.toRadians(41.5));
+        Grid.shift(grids, false, expected);
+        assertTrue(expected.x != Math.toRadians(-78.5));
+        WeakReference<GridShiftData> data = new WeakReference<>(grids.get(0).table.data);
+        assertNotNull(data.get());
+
+        grids.get(0).releaseConversionTable();
+        for (int i = 0; i < 100 && data.get() != null; i++) {
+            System.gc();
+        }
+        assertNull(data.get());
+
+        // the interpolator reads the cell again from the reloaded table
+        long loads = GridCache.getLoadCount();
+        ProjCoordinate actual = new ProjCoordinate(Math.toRadians(-78.5), Math.toRadians(41.5));
+        Grid.shift(grids, false, actual);
+        assertTrue(GridCache.getLoadCount() > loads);
+        assertEquals(expected.x, actual.x, 0);
+        assertEquals(expected.y, actual.y, 0);
+    }
+
+    @Test
+    public void testMemoryMappedTables() throws IOException {
+        List<Grid> packed = Grid.fromNadGrids(writeCtable2(5, 5, 1).getPath());
+        List<Grid> mapped;
+        try {
+            GridCache.setMemoryMapping(true);
+            mapped = Grid.fromNadGrids(writeCtable2(5, 5, 1).getPath());
+        } finally {
+            GridCache.setMemoryMapping(false);
+        }
+        assertEquals(0, mapped.get(0).table.dataBytes());
+        assertShiftsEqual(packed, mapped);
+        assertEquals(25 * 8, packed.get(0).table.dataBytes());
+    }
+
+    @Test
+    public void testRowsAreReadOnDemand() throws IOException {
+        File file = writeCtable2(10, 2000, 0.001);
+        List<Grid> grids = Grid.fromNadGrids(file.getPath());
+        Grid.ConversionTable table = grids.get(0).table;
+        assertFalse(table.isLoaded());
+
+        ProjCoordinate p = new ProjCoordinate(Math.toRadians(-79.9955), Math.toRadians(40.0015));
+        Grid.shift(grids, false, p);
+        assertTrue(table.isLoaded());
+        assertTrue(table.dataBytes() > 0);
+        assertTrue(table.dataBytes() < 10 * 2000 * 8);
+
+        List<Grid> mapped;
+        try {
+            GridCache.setMemoryMapping(true);
+            mapped = Grid.fromNadGrids(copy(file).getPath());
+        } finally {
+            GridCache.setMemoryMapping(false);
+        }
+        ProjCoordinate expected = new ProjCoordinate(Math.toRadians(-79.9955), Math.toRadians(40.0015));
+        Grid.shift(mapped, false, expected);
+        assertEquals(expected.x, p.x, 0);
+        assertEquals(expected.y, p.y, 0);
+        // the middle of the cell between nodes 14, 15, 24 and 25
+        assertEquals(Math.toRadians(-79.9955) - 19.5e-6, p.x, 1e-12);
+        assertEquals(Math.toRadians(40.0015) - 39e-6, p.y, 1e-12);
+    }
+
+    @Test
+    public void testSerializedGridsReloadTables() throws Exception {
+        List<Grid> grids = Grid.fromNadGrids(writeCtable2(5, 5, 1).getPath());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(grids.get(0));
+        }
+        Grid copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (Grid) in.readObject();
+        }
+        assertFalse(copy.table.isLoaded());
+        assertEquals(grids.get(0), copy);
+
+        assertShiftsEqual(grids, Collections.singletonList(copy));
+        assertTrue(copy.table.isLoaded());
+    }
+
+    @Test
+    public void testSerializedDatumLooksForGrids() throws Exception {
+        assertEquals(-7070780190787623368L, ObjectStreamClass.lookup(Datum.class).getSerialVersionUID());
+
+        ProjCoordinate expected = new ProjCoordinate(Math.toRadians(-79.0), Math.toRadians(45.0));
+        Datum.NAD27.shift(expected);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(Datum.NAD27);
+        }
+        Datum copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (Datum) in.readObject();
+        }
+        assertTrue(copy.isEqual(Datum.NAD27));
+
+        // the copy finds the grids already loaded, rather than reading its own copies of them
+        long loads = GridCache.getLoadCount();
+        ProjCoordinate actual = new ProjCoordinate(Math.toRadians(-79.0), Math.toRadians(45.0));
+        copy.shift(actual);
+        assertEquals(loads, GridCache.getLoadCount());
+        assertEquals(expected.x, actual.x, 0);
+        assertEquals(expected.y, actual.y, 0);
+    }
+
+    @Test
+    public void testInverseTables() throws IOException {
+        List<Grid> grids = Grid.fromNadGrids(writeCtable2(50, 50, 0.1).getPath());
+        double[] lams = new double[100];
+        double[] phis = new double[100];
+        for (int i = 0; i < 100; i++) {
+            lams[i] = Math.toRadians(-79.5 + i * 0.0301);
+            phis[i] = Math.toRadians(40.5 + i * 0.0297);
+        }
+        double[] exactLams = lams.clone();
+        double[] exactPhis = phis.clone();
+        Grid.shift(grids, true, exactLams, exactPhis, 0, 100);
+        long forwardBytes = grids.get(0).table.dataBytes();
+
+        try {
+            GridCache.setInverseTables(true);
+            double[] refinedLams = lams.clone();
+            double[] refinedPhis = phis.clone();
+            Grid.shift(grids, true, refinedLams, refinedPhis, 0, 100);
+            assertTrue(grids.get(0).table.dataBytes() > forwardBytes);
+
+            GridCache.setInverseTolerance(Double.POSITIVE_INFINITY);
+            double[] lookupLams = lams.clone();
+            double[] lookupPhis = phis.clone();
+            Grid.shift(grids, true, lookupLams, lookupPhis, 0, 100);
+
+            for (int i = 0; i < 100; i++) {
+                assertTrue(exactLams[i] != lams[i]);
+                assertEquals(exactLams[i], refinedLams[i], 1e-11);
+                assertEquals(exactPhis[i], refinedPhis[i], 1e-11);
+                assertEquals(exactLams[i], lookupLams[i], 1e-9);
+                assertEquals(exactPhis[i], lookupPhis[i], 1e-9);
+            }
+        } finally {
+            GridCache.setInverseTables(false);
+            GridCache.setInverseTolerance(1e-9);
+        }
+    }
+
+    private static void assertShiftsEqual(List<Grid> expected, List<Grid> actual) {
+        for (double lon = -79.9; lon < -76; lon += 0.37) {
+            for (double lat = 40.1; lat < 44; lat += 0.41) {
+                ProjCoordinate e = new ProjCoordinate(Math.toRadians(lon), Math.toRadians(lat));
+                ProjCoordinate a = new ProjCoordinate(e.x, e.y);
+                Grid.shift(expected, false, e);
+                Grid.shift(actual, false, a);
+                assertEquals(e.x, a.x, 0);
+                assertEquals(e.y, a.y, 0);
+                assertTrue(e.x != Math.toRadians(lon));
+            }
+        }
+    }
+
+    /**
+     * Writes a CTABLE V2 grid with its lower left corner at 80W 40N.
+     */
+    private static File writeCtable2(int columns, int rows, double spacing) throws IOException {
+        File file = File.createTempFile("grid", ".ct2");
+        file.deleteOnExit();
+        ByteBuffer buffer = ByteBuffer.allocate(160 + columns * rows * 8).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("CTABLE V2".getBytes(StandardCharsets.US_ASCII));
+        buffer.position(16);
+        buffer.put("test grid".getBytes(StandardCharsets.US_ASCII));
+        buffer.position(96);
+        buffer.putDouble(Math.toRadians(-80)).putDouble(Math.toRadians(40));
+        buffer.putDouble(Math.toRadians(spacing)).putDouble(Math.toRadians(spacing));
+        buffer.putInt(columns).putInt(rows);
+        buffer.position(160);
+        for (int node = 0; node < columns * rows; node++) {
+            buffer.putFloat(node * 1e-6f).putFloat(-node * 2e-6f);
+        }
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(buffer.array());
+        }
+        return file;
+    }
+
+    private static File copy(File file) throws IOException {
+        File copy = File.createTempFile("grid", ".ct2");
+        copy.deleteOnExit();
+        Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+
+    private static ProjCoordinate shift(List<Grid> grids) {
+        ProjCoordinate p = new ProjCoordinate(Math.toRadians(-79.0), Math.toRadians(45.0));
+        Grid.shift(grids, false, p);
+        return p;
+    }
+}
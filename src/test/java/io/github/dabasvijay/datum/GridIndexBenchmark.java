@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package io.github.dabasvijay.datum;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares selecting grids from a synthetic hierarchy of 100 subgrids
+ * through a {@link GridIndex} with walking the subgrid lists.
+ * <pre>
+ * java -cp target/classes:target/test-classes io.github.dabasvijay.datum.GridIndexBenchmark
+ * </pre>
+ */
+public class GridIndexBenchmark {
+
+    private static final int POINTS = 1000000;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        List<Grid> grids = GridIndexTest.hierarchy(10);
+        GridIndex index = new GridIndex(grids);
+
+        Random random = new Random(42);
+        double[] lams = new double[POINTS];
+        double[] phis = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            lams[i] = Math.toRadians(random.nextDouble() * 10);
+            phis[i] = Math.toRadians(random.nextDouble() * 10);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < POINTS; i++) {
+                if (walk(grids, lams[i], phis[i]) != null) found++;
+            }
+            long walked = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < POINTS; i++) {
+                if (index.find(lams[i], phis[i]) != null) found--;
+            }
+            long indexed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            index.shift(false, lams.clone(), phis.clone(), 0, POINTS, new GridInterpolator());
+            long shifted = System.nanoTime() - start;
+
+            System.out.printf("walk %6.1f ns   index %6.1f ns   indexed batch shift %6.1f ns   (%d)%n",
+                    walked / (double) POINTS, indexed / (double) POINTS, shifted / (double) POINTS, found);
+        }
+    }
+
+    /**
+     * Selects a grid as Grid.shift did before the index: checking each grid and subgrid in turn.
+     */
+    private static Grid walk(List<Grid> grids, double lam, double phi) {
+        for (Grid grid : grids) {
+            if (grid.table == null || !grid.table.covers(lam, phi)) continue;
+            while (grid.child != null) {
+                Grid child;
+                for (child = grid.child; child != null; child = child.next) {
+                    if (child.table.covers(lam, phi)) break;
+                }
+                if (child == null) break;
+                grid = child;
+            }
+            return grid;
+        }
+        return null;
+    }
+}
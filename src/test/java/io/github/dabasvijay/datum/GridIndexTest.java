@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package io.github.dabasvijay.datum;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import io.github.dabasvijay.ProjCoordinate;
+import io.github.dabasvijay.util.IntPolarCoordinate;
+import io.github.dabasvijay.util.PolarCoordinate;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class GridIndexTest {
+
+    @Test
+    public void testFindsMostSpecificSubgrid() {
+        List<Grid> grids = hierarchy(10);
+        Grid parent = grids.get(0);
+        Grid sub34 = subgrid(parent, 3 * 10 + 4);
+        Grid nested = sub34.child;
+        GridIndex index = new GridIndex(grids);
+
+        assertSame(subgrid(parent, 0), index.find(rad(0.5), rad(0.5)));
+        assertSame(subgrid(parent, 99), index.find(rad(9.5), rad(9.5)));
+        assertSame(sub34, index.find(rad(4.1), rad(3.1)));
+        assertSame(nested, index.find(rad(4.5), rad(3.5)));
+        // the parent extends beyond its subgrids
+        assertSame(parent, index.find(rad(10.5), rad(5)));
+        assertNull(index.find(rad(-1), rad(5)));
+        assertNull(index.find(rad(5), rad(12)));
+    }
+
+    @Test
+    public void testFirstGridWins() {
+        Grid first = grid("first", 0, 0, 1, 1e-6f);
+        Grid second = grid("second", 0, 0, 1, 2e-6f);
+        GridIndex index = new GridIndex(Arrays.asList(first, second));
+        assertSame(first, index.find(rad(0.5), rad(0.5)));
+
+        ProjCoordinate p = new ProjCoordinate(rad(0.5), rad(0.5));
+        index.shift(false, p);
+        assertEquals(rad(0.5) + 1e-6, p.y, 1e-12);
+    }
+
+    @Test
+    public void testFallsBackToNextGrid() {
+        // a point just outside the first grid is within its tolerance, but can't be interpolated
+        Grid first = grid("first", 0, 0, 1, 1e-6f);
+        Grid second = grid("second", -1, -1, 2, 2e-6f);
+        GridIndex index = new GridIndex(Arrays.asList(first, second));
+        double lam = -rad(1) / 100000;
+        assertSame(first, index.find(lam, rad(0.5)));
+
+        ProjCoordinate p = new ProjCoordinate(lam, rad(0.5));
+        index.shift(false, p);
+        assertEquals(rad(0.5) + 2e-6, p.y, 1e-12);
+    }
+
+    @Test
+    public void testScanMatchesIndex() {
+        List<Grid> grids = hierarchy(10);
+        grids.add(grid("first", 0, 0, 1, 1e-6f));
+        grids.add(grid("second", -1, -1, 2, 2e-6f));
+        GridIndex index = new GridIndex(grids);
+        Random random = new Random(1);
+        double[] lams = new double[1000], phis = new double[1000];
+        for (int i = 0; i < lams.length; i++) {
+            lams[i] = rad(-2 + 14 * random.nextDouble());
+            phis[i] = rad(-2 + 14 * random.nextDouble());
+            ProjCoordinate indexed = new ProjCoordinate(lams[i], phis[i]);
+            ProjCoordinate scanned = new ProjCoordinate(lams[i], phis[i]);
+            index.shift(true, indexed);
+            Grid.shift(grids, true, scanned);
+            assertEquals(indexed.x, scanned.x, 0);
+            assertEquals(indexed.y, scanned.y, 0);
+        }
+        double[] indexedLams = lams.clone(), indexedPhis = phis.clone();
+        index.shift(false, indexedLams, indexedPhis, 0, lams.length, new GridInterpolator());
+        Grid.shift(grids, false, lams, phis, 0, lams.length);
+        assertArrayEquals(indexedLams, lams, 0);
+        assertArrayEquals(indexedPhis, phis, 0);
+    }
+
+    /**
+     * Creates a grid covering 0 to 10 degrees in each direction with a square of subgrids,
+     * each with a constant shift, and a nested subgrid within the subgrid at (4, 3).
+     */
+    static List<Grid> hierarchy(int subgridsPerAxis) {
+        Grid parent = grid("parent", 0, 0, 11, 0);
+        double size = 10.0 / subgridsPerAxis;
+        for (int row = 0; row < subgridsPerAxis; row++) {
+            for (int col = 0; col < subgridsPerAxis; col++) {
+                Grid subgrid = grid("sub" + row + "_" + col, col * size, row * size, size, (row * subgridsPerAxis + col) * 1e-7f);
+                parent.addChild(subgrid);
+            }
+        }
+        Grid sub34 = subgrid(parent, 3 * subgridsPerAxis + 4);
+        sub34.addChild(grid("nested", 4.25, 3.25, 0.5, 1e-5f));
+        List<Grid> grids = new ArrayList<Grid>();
+        grids.add(parent);
+        return grids;
+    }
+
+    private static Grid subgrid(Grid parent, int n) {
+        Grid subgrid = parent.child;
+        for (int i = 0; i < n; i++) subgrid = subgrid.next;
+        return subgrid;
+    }
+
+    /**
+     * Creates a 3 x 3 node grid with a constant shift
+     */
+    private static Grid grid(String name, double lam, double phi, double size, float shift) {
+        Grid.ConversionTable table = new Grid.ConversionTable();
+        table.id = name;
+        table.ll = new PolarCoordinate(rad(lam), rad(phi));
+        table.del = new PolarCoordinate(rad(size / 2), rad(size / 2));
+        table.lim = new IntPolarCoordinate(3, 3);
+        float[] values = new float[18];
+        Arrays.fill(values, shift);
+        return Grid.fromTable(name, table, GridShiftData.packed(values));
+    }
+
+    private static double rad(double degrees) {
+        return Math.toRadians(degrees);
+    }
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package io.github.dabasvijay.datum;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import io.github.dabasvijay.ProjCoordinate;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NTV2Test {
+
+    private static final double SECONDS = Math.PI / 180 / 3600;
+
+    @Test
+    public void testSubgridTree() throws IOException {
+        List<Grid> grids = Grid.fromNadGrids(writeNtv2(ByteOrder.LITTLE_ENDIAN).getPath());
+        assertEquals(2, grids.size());
+        Grid parent = grids.get(0);
+        assertEquals("PARENT", parent.table.id);
+        assertEquals("CHILD", parent.child.table.id);
+        assertNull(parent.child.child);
+        assertNull(parent.child.next);
+        assertEquals("OTHER", grids.get(1).table.id);
+        assertSame(grids.get(1), parent.next);
+        assertEquals(3, parent.table.lim.lam);
+        assertEquals(3, parent.table.lim.phi);
+        assertEquals(Math.toRadians(-80), parent.table.ll.lam, 1e-15);
+        assertEquals(Math.toRadians(40), parent.table.ll.phi, 1e-15);
+        assertEquals(Math.toRadians(1), parent.table.del.lam, 1e-15);
+    }
+
+    @Test
+    public void testSubgridsAreLoadedSeparately() throws IOException {
+        List<Grid> grids = Grid.fromNadGrids(writeNtv2(ByteOrder.LITTLE_ENDIAN).getPath());
+        Grid parent = grids.get(0);
+        Grid child = parent.child;
+        assertFalse(parent.table.isLoaded());
+
+        // the parent shifts by the column from the west in longitude, and the row from the south in latitude
+        ProjCoordinate p = shift(grids, -79.5, 41.5);
+        assertEquals(Math.toRadians(-79.5) - 0.5 * SECONDS, p.x, 1e-12);
+        assertEquals(Math.toRadians(41.5) + 1.5 * SECONDS, p.y, 1e-12);
+        assertTrue(parent.table.isLoaded());
+        assertFalse(child.table.isLoaded());
+        assertFalse(grids.get(1).table.isLoaded());
+
+        // the child shifts by 10 seconds everywhere
+        p = shift(grids, -78.8, 40.7);
+        assertEquals(Math.toRadians(-78.8) - 10 * SECONDS, p.x, 1e-12);
+        assertEquals(Math.toRadians(40.7) + 10 * SECONDS, p.y, 1e-12);
+        assertTrue(child.table.isLoaded());
+
+        p = shift(grids, -70.5, 40.5);
+        assertEquals(Math.toRadians(-70.5) - 20 * SECONDS, p.x, 1e-12);
+        assertEquals(Math.toRadians(40.5) + 20 * SECONDS, p.y, 1e-12);
+    }
+
+    @Test
+    public void testBigEndianFile() throws IOException {
+        List<Grid> little = Grid.fromNadGrids(writeNtv2(ByteOrder.LITTLE_ENDIAN).getPath());
+        List<Grid> big = Grid.fromNadGrids(writeNtv2(ByteOrder.BIG_ENDIAN).getPath());
+        assertEquals(little.get(0).table, big.get(0).table);
+        for (double lon = -79.9; lon < -70; lon += 0.23) {
+            for (double lat = 40.1; lat < 42; lat += 0.19) {
+                ProjCoordinate expected = shift(little, lon, lat);
+                ProjCoordinate actual = shift(big, lon, lat);
+                assertEquals(expected.x, actual.x, 0);
+                assertEquals(expected.y, actual.y, 0);
+            }
+        }
+    }
+
+    private static ProjCoordinate shift(List<Grid> grids, double lon, double lat) {
+        ProjCoordinate p = new ProjCoordinate(Math.toRadians(lon), Math.toRadians(lat));
+        Grid.shift(grids, false, p);
+        return p;
+    }
+
+    /**
+     * Writes an NTv2 file with a 2 by 2 degree grid at 80W 40N, a subgrid refining part of it,
+     * and another top level grid at 71W 40N.
+     */
+    private static File writeNtv2(ByteOrder order) throws IOException {
+        File file = File.createTempFile("grid", ".gsb");
+        file.deleteOnExit();
+        ByteBuffer buffer = ByteBuffer.allocate(4 * 176 + 16 * (9 + 9 + 4)).order(order);
+        record(buffer, "NUM_OREC").putInt(11).putInt(0);
+        record(buffer, "NUM_SREC").putInt(11).putInt(0);
+        record(buffer, "NUM_FILE").putInt(3).putInt(0);
+        record(buffer, "GS_TYPE ").put(bytes("SECONDS "));
+        for (String name : new String[]{"VERSION ", "SYSTEM_F", "SYSTEM_T", "MAJOR_F ", "MINOR_F ", "MAJOR_T ", "MINOR_T "}) {
+            record(buffer, name).putDouble(0);
+        }
+
+        subfile(buffer, "PARENT", "NONE", 40, 42, 78, 80, 1);
+        for (int row = 0; row < 3; row++) {
+            // from east to west
+            for (int col = 2; col >= 0; col--) {
+                buffer.putFloat(row).putFloat(col).putFloat(0).putFloat(0);
+            }
+        }
+        subfile(buffer, "CHILD", "PARENT", 40.5, 41, 78.5, 79, 0.25);
+        for (int node = 0; node < 9; node++) {
+            buffer.putFloat(10).putFloat(10).putFloat(0).putFloat(0);
+        }
+        subfile(buffer, "OTHER", "NONE", 40, 41, 70, 71, 1);
+        for (int node = 0; node < 4; node++) {
+            buffer.putFloat(20).putFloat(20).putFloat(0).putFloat(0);
+        }
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(buffer.array());
+        }
+        return file;
+    }
+
+    private static void subfile(ByteBuffer buffer, String name, String parent,
+                                double south, double north, double east, double west, double spacing) {
+        int columns = (int) Math.round((west - east) / spacing) + 1;
+        int rows = (int) Math.round((north - south) / spacing) + 1;
+        record(buffer, "SUB_NAME").put(bytes(name));
+        record(buffer, "PARENT  ").put(bytes(parent));
+        record(buffer, "CREATED ").put(bytes(""));
+        record(buffer, "UPDATED ").put(bytes(""));
+        record(buffer, "S_LAT   ").putDouble(south * 3600);
+        record(buffer, "N_LAT   ").putDouble(north * 3600);
+        record(buffer, "E_LONG  ").putDouble(east * 3600);
+        record(buffer, "W_LONG  ").putDouble(west * 3600);
+        record(buffer, "LAT_INC ").putDouble(spacing * 3600);
+        record(buffer, "LONG_INC").putDouble(spacing * 3600);
+        record(buffer, "GS_COUNT").putInt(columns * rows).putInt(0);
+    }
+
+    private static ByteBuffer record(ByteBuffer buffer, String name) {
+        return buffer.put(bytes(name));
+    }
+
+    private static byte[] bytes(String s) {
+        return String.format("%-8s", s).getBytes(StandardCharsets.US_ASCII);
+    }
+}
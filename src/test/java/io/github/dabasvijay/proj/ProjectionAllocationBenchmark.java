@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.dabasvijay.proj;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import io.github.dabasvijay.CRSFactory;
+import io.github.dabasvijay.ProjCoordinate;
+
+/**
+ * Measures the time and the heap allocated per point by the forward and inverse of a projection,
+ * which for the projections used in bulk (such as etmerc, behind all UTM zones) should allocate nothing.
+ * Allocation is read from the thread's allocation counter, so is only reported on JVMs which keep one.
+ * <pre>
+ * java -cp target/classes:target/test-classes io.github.dabasvijay.proj.ProjectionAllocationBenchmark [proj4 parameters]
+ * </pre>
+ */
+public class ProjectionAllocationBenchmark {
+
+    private static final int POINTS = 1000000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        String params = args.length > 0 ? args[0] : "+proj=utm +zone=33 +ellps=GRS80 +units=m";
+        Projection projection = new CRSFactory().createFromParameters(null, params).getProjection();
+
+        double[] lons = new double[POINTS];
+        double[] lats = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            lons[i] = Math.toRadians(12 + 6.0 * i / POINTS);
+            lats[i] = Math.toRadians(-60 + 140.0 * (i % 1000) / 1000);
+        }
+        double[] xs = new double[POINTS];
+        double[] ys = new double[POINTS];
+
+        System.out.printf("%s (%s)%n", projection.getName(), params);
+        ProjCoordinate src = new ProjCoordinate();
+        ProjCoordinate dst = new ProjCoordinate();
+        for (int round = 0; round < ROUNDS; round++) {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < POINTS; i++) {
+                src.x = lons[i];
+                src.y = lats[i];
+                projection.projectRadians(src, dst);
+                xs[i] = dst.x;
+                ys[i] = dst.y;
+            }
+            long forward = System.nanoTime() - start;
+            long forwardBytes = allocatedBytes() - bytes;
+
+            bytes = allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < POINTS; i++) {
+                src.x = xs[i];
+                src.y = ys[i];
+                projection.inverseProjectRadians(src, dst);
+            }
+            long inverse = System.nanoTime() - start;
+            long inverseBytes = allocatedBytes() - bytes;
+
+            System.out.printf("forward %6.1f ns %s   inverse %6.1f ns %s%n",
+                    forward / (double) POINTS, perPoint(forwardBytes),
+                    inverse / (double) POINTS, perPoint(inverseBytes));
+        }
+    }
+
+    private static String perPoint(long bytes) {
+        return bytes < 0 ? "" : String.format("%6.2f B/point", bytes / (double) POINTS);
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return -1;
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
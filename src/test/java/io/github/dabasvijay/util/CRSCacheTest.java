@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright 2009, 2017 Martin Davis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package io.github.dabasvijay.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.dabasvijay.CoordinateReferenceSystem;
+import io.github.dabasvijay.UnknownAuthorityCodeException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CRSCacheTest {
+
+    @Test
+    public void testConcurrentMissesCreateOnce() throws Exception {
+        final BoundedCache<String, Integer> cache = new BoundedCache<>(10, 0, TimeUnit.SECONDS);
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final BoundedCache.Loader<String, Integer> loader = new BoundedCache.Loader<String, Integer>() {
+            @Override
+            public Integer load(String key) {
+                loads.incrementAndGet();
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return key.length();
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        start.await();
+                        return cache.get("EPSG:4326", loader);
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(9, (int) result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(7, cache.getHitCount());
+        assertTrue(cache.getTotalLoadTime() > 0);
+    }
+
+    @Test
+    public void testUnknownCodesAreRemembered() {
+        CRSCache cache = new CRSCache(10, 1, TimeUnit.HOURS);
+        UnknownAuthorityCodeException first = null;
+        try {
+            cache.createFromName("EPSG:999999");
+            fail();
+        } catch (UnknownAuthorityCodeException e) {
+            first = e;
+        }
+        try {
+            cache.createFromName("EPSG:999999");
+            fail();
+        } catch (UnknownAuthorityCodeException e) {
+            // a new exception for each request, caused by the one the loader threw
+            assertNotSame(first, e);
+            assertTrue(first.getCause() instanceof UnknownAuthorityCodeException);
+            assertSame(first.getCause(), e.getCause());
+            assertEquals(first.getMessage(), e.getMessage());
+        }
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+
+        assertNull(cache.readEpsgFromParameters("+proj=nonsense"));
+        assertNull(cache.readEpsgFromParameters(new String[]{"+proj=nonsense"}));
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void testRememberedFailuresAreNotShared() {
+        final IllegalArgumentException failure = new IllegalArgumentException("bad key");
+        BoundedCache.Loader<String, String> loader = new BoundedCache.Loader<String, String>() {
+            @Override
+            public String load(String key) {
+                throw failure;
+            }
+        };
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 1, TimeUnit.HOURS);
+        List<IllegalArgumentException> thrown = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.get("a", loader);
+                fail();
+            } catch (IllegalArgumentException e) {
+                thrown.add(e);
+            }
+        }
+        assertNotSame(thrown.get(0), thrown.get(1));
+        for (IllegalArgumentException e : thrown) {
+            assertNotSame(failure, e);
+            assertSame(failure, e.getCause());
+            assertEquals("bad key", e.getMessage());
+        }
+        thrown.get(0).addSuppressed(new RuntimeException());
+        assertEquals(0, thrown.get(1).getSuppressed().length);
+        assertEquals(0, failure.getSuppressed().length);
+    }
+
+    @Test
+    public void testFailuresExpire() throws InterruptedException {
+        final AtomicInteger loads = new AtomicInteger();
+        BoundedCache.Loader<String, String> loader = new BoundedCache.Loader<String, String>() {
+            @Override
+            public String load(String key) {
+                loads.incrementAndGet();
+                return null;
+            }
+        };
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 20, TimeUnit.MILLISECONDS);
+        assertNull(cache.get("a", loader));
+        assertNull(cache.get("a", loader));
+        assertEquals(1, loads.get());
+        Thread.sleep(40);
+        assertNull(cache.get("a", loader));
+        assertEquals(2, loads.get());
+
+        BoundedCache<String, String> forgetful = new BoundedCache<>(10, 0, TimeUnit.MILLISECONDS);
+        assertNull(forgetful.get("a", loader));
+        assertNull(forgetful.get("a", loader));
+        assertEquals(4, loads.get());
+        assertEquals(0, forgetful.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedAreEvicted() {
+        CRSCache cache = new CRSCache(2, 0, TimeUnit.SECONDS);
+        CoordinateReferenceSystem wgs84 = cache.createFromName("EPSG:4326");
+        cache.createFromName("EPSG:3857");
+        assertSame(wgs84, cache.createFromName("EPSG:4326"));
+        cache.createFromName("EPSG:27700");
+        assertEquals(1, cache.getEvictionCount());
+
+        // 4326 was used more recently than 3857, so is kept
+        assertSame(wgs84, cache.createFromName("EPSG:4326"));
+        assertEquals(3, cache.getMissCount());
+        CoordinateReferenceSystem mercator = cache.createFromName("EPSG:3857");
+        assertEquals(4, cache.getMissCount());
+        assertNotSame(wgs84, mercator);
+    }
+}